@@ -0,0 +1,87 @@
+package decision;
+
+import com.capitalone.identity.identitybuilder.configmanagement.MatchingStrategies;
+import com.capitalone.identity.identitybuilder.model.ConfigStoreItem;
+import com.capitalone.identity.identitybuilder.model.Entity;
+import com.capitalone.identity.identitybuilder.model.EntityActivationStatus;
+import com.capitalone.identity.identitybuilder.model.EntityInfo;
+import com.capitalone.identity.identitybuilder.model.parsing.PolicyDefinition;
+import com.capitalone.identity.platform.DecisionPolicyRequest;
+import com.capitalone.identity.platform.DecisionPolicyRuntimeContext;
+import com.capitalone.identity.platform.PreparedDecision;
+import com.capitalone.identity.platform.loading.TestContent;
+import com.capitalone.identity.platform.versioning.PolicyVersionService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Measures a steady-state decision invocation through {@link DecisionPolicyRuntimeContext#invoke} and through a
+ * {@link PreparedDecision}. Run with the gc profiler (configured for every module) and compare
+ * {@code gc.alloc.rate.norm} to see the bytes allocated per invocation outside of the decision engine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1)
+public class DecisionPolicyRuntimeContextBenchmarkTest {
+
+    private static final String POLICY_NAME = "us_consumers/sub_lob/local_policy";
+
+    private DecisionPolicyRuntimeContext context;
+
+    private EntityInfo.Policy policyInfo;
+
+    private DecisionPolicyRequest request;
+
+    private PreparedDecision preparedDecision;
+
+    private PreparedDecision.Inputs preparedInputs;
+
+    @Setup
+    public void setUp() {
+        String location = POLICY_NAME + "/1.0/0";
+        Set<ConfigStoreItem> items = Stream.of(
+                new ConfigStoreItem(location + "/rules/simple.dmn", TestContent.SIMPLE_DMN),
+                new ConfigStoreItem(location + "/config/defaults.json", TestContent.SIMPLE_CONFIG_DEFAULTS),
+                new ConfigStoreItem(location + "/config/schema.json", TestContent.SIMPLE_CONFIG_SCHEMA),
+                new ConfigStoreItem(location + "/config/A.A.A.A.json", TestContent.SIMPLE_CONFIG_USECASE_A),
+                new ConfigStoreItem(location + "/policy-metadata.json", TestContent.POLICY_METADATA_DECISION_AVAILABLE)
+        ).collect(Collectors.toSet());
+        policyInfo = new EntityInfo.Policy(
+                new PolicyDefinition(location, POLICY_NAME, POLICY_NAME, 1, 0, 0),
+                items.stream().map(item -> item.info).collect(Collectors.toSet()));
+
+        context = new DecisionPolicyRuntimeContext(MatchingStrategies.MATCH_ALL_NON_NULL);
+        context.load(new Entity.Policy(policyInfo, items));
+
+        Map<String, Serializable> body = new HashMap<>();
+        body.put("param-A", "value");
+        request = new DecisionPolicyRequest(body, "A.A.A.A", "simple.dmn");
+
+        PolicyVersionService versionService = new PolicyVersionService();
+        versionService.set(policyInfo, EntityActivationStatus.ACTIVE);
+        preparedDecision = context.prepare(versionService, POLICY_NAME, "1.0", "simple.dmn", "A.A.A.A");
+        preparedInputs = preparedDecision.newInputs().set("param-A", "value");
+    }
+
+    @Benchmark
+    public void invoke(Blackhole bh) {
+        bh.consume(context.invoke(policyInfo, request));
+    }
+
+    @Benchmark
+    public void invokePrepared(Blackhole bh) {
+        bh.consume(preparedDecision.invoke(preparedInputs));
+    }
+
+}
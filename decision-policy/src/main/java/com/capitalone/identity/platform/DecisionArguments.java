@@ -0,0 +1,77 @@
+package com.capitalone.identity.platform;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Read-only view of a request body overlaid with the {@code config.}-prefixed argument template of its business event.
+ * The body must not use the {@code config.} prefix, so the two key sets never overlap.
+ */
+final class DecisionArguments extends AbstractMap<String, Object> {
+
+    private final Map<String, Serializable> body;
+
+    private final Map<String, Object> template;
+
+    DecisionArguments(Map<String, Serializable> body, Map<String, Object> template) {
+        this.body = body;
+        this.template = template;
+    }
+
+    @Override
+    public Object get(Object key) {
+        Object value = body.get(key);
+        return value != null ? value : template.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return body.containsKey(key) || template.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return body.size() + template.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return body.isEmpty() && template.isEmpty();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<Entry<String, Object>>() {
+                    private Iterator<? extends Entry<String, ?>> current = body.entrySet().iterator();
+
+                    private boolean inTemplate;
+
+                    @Override
+                    public boolean hasNext() {
+                        if (!current.hasNext() && !inTemplate) {
+                            current = template.entrySet().iterator();
+                            inTemplate = true;
+                        }
+                        return current.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        Entry<String, ?> entry = current.next();
+                        return new SimpleImmutableEntry<>(entry.getKey(), entry.getValue());
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return DecisionArguments.this.size();
+            }
+        };
+    }
+
+}
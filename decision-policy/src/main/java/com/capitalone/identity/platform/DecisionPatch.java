@@ -0,0 +1,293 @@
+package com.capitalone.identity.platform;
+
+import com.capitalone.identity.identitybuilder.configmanagement.ConfigManagementModel;
+import com.capitalone.identity.identitybuilder.configmanagement.ConfigMatchingStrategy;
+import com.capitalone.identity.identitybuilder.model.LogicalVersion;
+import com.capitalone.identity.platform.dmn.RuleDefinitionModel;
+import com.capitalone.identity.platform.dmn.RuleDefinitionModelGroup;
+
+import java.io.Serializable;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Everything a request needs from one loaded policy patch. Instances are immutable and replaced as a whole on every
+ * load, so a request that looked one up sees the rule group, dmn names and configuration of the same load. The only
+ * mutable state is a memo of argument templates derived from that configuration, whether the rule group is
+ * currently compiled into a decision runtime, and the patch that succeeds this one once it is retired.
+ */
+final class DecisionPatch {
+
+    static final String RESERVED_CONFIG_PREFIX = "config.";
+
+    /**
+     * Business event names come from requests, so templates beyond this many are built per request instead of kept.
+     */
+    private static final int MAX_ARGUMENT_TEMPLATES = 1024;
+
+    /**
+     * Memoized template of a business event that matches no configuration.
+     */
+    private static final Map<String, Object> NO_MATCH = Collections.unmodifiableMap(new HashMap<>());
+
+    private static final AtomicLong INSTANCE_SEQUENCE = new AtomicLong();
+
+    final String identifier;
+
+    /**
+     * Identifier of this load of the patch, unlike {@link #identifier} which is shared by every load of the same
+     * version. Results are cached under it, so a result evaluated against replaced content is never served for the
+     * content that replaced it.
+     */
+    final String resultIdentifier;
+
+    final LogicalVersion version;
+
+    final String policyName;
+
+    final String patchVersion;
+
+    private final int majorVersion;
+
+    private final int minorVersion;
+
+    private final int patchVersionNumber;
+
+    final RuleDefinitionModelGroup ruleDefinitionModelGroup;
+
+    final Set<String> dmnNames;
+
+    /**
+     * Null if the policy defines no configuration.
+     */
+    final ConfigManagementModel policyConfiguration;
+
+    private static final int RUNTIME_PENDING = -1;
+
+    private static final int RUNTIME_RETIRED = -2;
+
+    /**
+     * Set in the state of a compiled patch retired while invocations are in flight, which are counted above it.
+     */
+    private static final int RUNTIME_RETIRING = 1;
+
+    private static final int IN_FLIGHT = 2;
+
+    private final Map<String, Map<String, Object>> argumentTemplates = new ConcurrentHashMap<>();
+
+    /**
+     * Twice the number of invocations in flight while the rule group is compiled, plus {@link #RUNTIME_RETIRING} once
+     * it is retired; otherwise pending or retired. Leaves the compiled states only under the patch lock, or when the
+     * last invocation in flight on a retiring patch exits.
+     */
+    private final AtomicInteger runtimeState;
+
+    /**
+     * Removes the decision runtime of a retiring patch once its last invocation exits.
+     */
+    private volatile Consumer<RuleDefinitionModelGroup> retiredRuntimeRemover;
+
+    /**
+     * Patch that serves the invocations of this one once it is retired, or null.
+     */
+    private volatile DecisionPatch successor;
+
+    private volatile long lastInvoked;
+
+    /**
+     * Guarded by the patch lock.
+     */
+    private boolean evicted;
+
+    /**
+     * @param compiled true if the rule group has already been compiled into a decision runtime
+     */
+    DecisionPatch(LogicalVersion version, RuleDefinitionModelGroup ruleDefinitionModelGroup,
+                  ConfigManagementModel policyConfiguration, boolean compiled) {
+        this.version = version;
+        this.policyName = Objects.requireNonNull(version.getName());
+        this.patchVersion = version.getPatchVersionString();
+        this.majorVersion = version.getMajorVersion();
+        this.minorVersion = version.getMinorVersion();
+        this.patchVersionNumber = version.getPatchVersion();
+        this.identifier = policyName + "/" + patchVersion;
+        this.resultIdentifier = identifier + "#" + INSTANCE_SEQUENCE.incrementAndGet();
+        this.ruleDefinitionModelGroup = Objects.requireNonNull(ruleDefinitionModelGroup);
+        this.policyConfiguration = policyConfiguration;
+        Set<String> names = new HashSet<>();
+        for (RuleDefinitionModel model : ruleDefinitionModelGroup.getRuleDefinitionModelList()) {
+            names.add(model.getRuleShortName());
+        }
+        this.dmnNames = Collections.unmodifiableSet(names);
+        this.runtimeState = new AtomicInteger(compiled ? 0 : RUNTIME_PENDING);
+    }
+
+    boolean isCompiled() {
+        int current = runtimeState.get();
+        return current >= 0 && (current & RUNTIME_RETIRING) == 0;
+    }
+
+    /**
+     * Holds the decision runtime for an invocation, so that it is not evicted while in use.
+     *
+     * @return false if the rule group is not compiled; otherwise {@link #exit()} must follow
+     */
+    boolean enter() {
+        int current;
+        do {
+            current = runtimeState.get();
+            if (current < 0 || (current & RUNTIME_RETIRING) != 0) {
+                return false;
+            }
+        } while (!runtimeState.compareAndSet(current, current + IN_FLIGHT));
+        return true;
+    }
+
+    /**
+     * Releases the hold of {@link #enter()}. The last invocation to exit a retiring patch removes its runtime.
+     */
+    void exit() {
+        if (runtimeState.addAndGet(-IN_FLIGHT) == RUNTIME_RETIRING
+                && runtimeState.compareAndSet(RUNTIME_RETIRING, RUNTIME_RETIRED)) {
+            retiredRuntimeRemover.accept(ruleDefinitionModelGroup);
+        }
+    }
+
+    void touch(long nanoTime) {
+        lastInvoked = nanoTime;
+    }
+
+    long getLastInvoked() {
+        return lastInvoked;
+    }
+
+    /**
+     * Compiles the rule group unless it already is. Concurrent callers wait for the first one, so the rule group is
+     * compiled at most once.
+     *
+     * @return false if the patch was retired and must not be compiled
+     * @throws RuntimeException thrown by the compiler; the patch stays pending so that a later call may retry
+     */
+    boolean compile(Consumer<RuleDefinitionModelGroup> compiler) {
+        if (isCompiled()) {
+            return true;
+        }
+        synchronized (this) {
+            if (runtimeState.get() == RUNTIME_PENDING) {
+                compiler.accept(ruleDefinitionModelGroup);
+                runtimeState.set(0);
+                evicted = false;
+            }
+            return isCompiled();
+        }
+    }
+
+    /**
+     * @return true if the decision runtime was evicted since it was last compiled. Only valid under the patch lock,
+     * e.g. from the compiler passed to {@link #compile}.
+     */
+    boolean isEvicted() {
+        return evicted;
+    }
+
+    /**
+     * Removes the decision runtime if it is compiled and no invocation is in flight. The patch stays loaded and is
+     * compiled again by its next invocation.
+     *
+     * @return true if the runtime was removed
+     */
+    synchronized boolean evict(Consumer<RuleDefinitionModelGroup> remover) {
+        if (!runtimeState.compareAndSet(0, RUNTIME_PENDING)) {
+            return false;
+        }
+        // under the lock, so that a concurrent compile cannot publish its runtime before this one is removed
+        remover.accept(ruleDefinitionModelGroup);
+        evicted = true;
+        return true;
+    }
+
+    /**
+     * Prevents the rule group from being compiled or entered after the patch is unloaded or replaced. The decision
+     * runtime is removed now if no invocation is in flight, otherwise by the last one to exit.
+     *
+     * @param remover   removes the decision runtime, if the rule group was compiled
+     * @param successor patch that serves the invocations of this one from now on, or null
+     * @return true if the rule group was compiled; false if it was not, or if the patch was already retired
+     */
+    synchronized boolean retire(Consumer<RuleDefinitionModelGroup> remover, DecisionPatch successor) {
+        int current;
+        do {
+            current = runtimeState.get();
+            if (current == RUNTIME_RETIRED || (current & RUNTIME_RETIRING) != 0 && current >= 0) {
+                return false;
+            }
+            // published before the state, so that callers failing to enter find it
+            this.successor = successor;
+            this.retiredRuntimeRemover = remover;
+        } while (!runtimeState.compareAndSet(current, current <= 0 ? RUNTIME_RETIRED : current | RUNTIME_RETIRING));
+        if (current == 0) {
+            remover.accept(ruleDefinitionModelGroup);
+        }
+        return current >= 0;
+    }
+
+    /**
+     * @return the patch that serves the invocations of this retired patch, or null
+     */
+    DecisionPatch getSuccessor() {
+        return successor;
+    }
+
+    /**
+     * @return true if this is the same patch version of a policy with the same name, compared without building a
+     * version string
+     */
+    boolean isVersion(LogicalVersion version) {
+        return version.getPatchVersion() == patchVersionNumber
+                && version.getMinorVersion() == minorVersion
+                && version.getMajorVersion() == majorVersion
+                && version.getName().equals(policyName);
+    }
+
+    boolean isVersion(DecisionPatch patch) {
+        return patch.patchVersionNumber == patchVersionNumber
+                && patch.minorVersion == minorVersion
+                && patch.majorVersion == majorVersion
+                && patch.policyName.equals(policyName);
+    }
+
+    /**
+     * @return the matching configuration of the business event with every key prefixed with {@code config.}, empty if
+     * the policy defines no configuration, or null if the policy defines configuration and none of it matches
+     */
+    Map<String, Object> getArgumentTemplate(String businessEventName, ConfigMatchingStrategy matchingStrategy) {
+        if (policyConfiguration == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, Object> template = argumentTemplates.get(businessEventName);
+        if (template == null) {
+            template = createArgumentTemplate(businessEventName, matchingStrategy);
+            if (argumentTemplates.size() < MAX_ARGUMENT_TEMPLATES) {
+                argumentTemplates.putIfAbsent(businessEventName, template);
+            }
+        }
+        return template == NO_MATCH ? null : template;
+    }
+
+    private Map<String, Object> createArgumentTemplate(String businessEventName,
+                                                       ConfigMatchingStrategy matchingStrategy) {
+        // business event must match a configuration if defined in the policy
+        Map<String, Serializable> configMap = policyConfiguration.getConfiguration(
+                businessEventName, matchingStrategy).orElse(null);
+        if (configMap == null) {
+            return NO_MATCH;
+        }
+        Map<String, Object> template = new HashMap<>();
+        configMap.forEach((key, value) -> template.put(RESERVED_CONFIG_PREFIX + key, value));
+        return Collections.unmodifiableMap(template);
+    }
+
+}
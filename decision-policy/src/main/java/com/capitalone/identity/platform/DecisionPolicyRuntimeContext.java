@@ -12,19 +12,29 @@ import com.capitalone.identity.identitybuilder.model.Entity;
 import com.capitalone.identity.identitybuilder.model.EntityInfo;
 import com.capitalone.identity.identitybuilder.model.LogicalVersion;
 import com.capitalone.identity.platform.dmn.DecisionPolicyRuntimeLoadService;
+import com.capitalone.identity.platform.dmn.DmnInputDataParser;
+import com.capitalone.identity.platform.dmn.RuleDefinitionModel;
 import com.capitalone.identity.platform.dmn.RuleDefinitionModelGroup;
 import com.capitalone.identity.platform.dmn.RuleDefinitionModelGroupFactory;
 import com.capitalone.identity.platform.loading.PolicyLoadTarget;
+import com.capitalone.identity.platform.metrics.PolicyInvocationStage;
+import com.capitalone.identity.platform.metrics.PolicyLatencyRecorder;
 import com.capitalone.identity.platform.runtime.PolicyError;
 import com.capitalone.identity.platform.runtime.PolicyErrorInfo;
 import com.capitalone.identity.platform.runtime.PolicyResult;
 import com.capitalone.identity.platform.runtime.PolicyRuntimeContext;
+import com.capitalone.identity.platform.versioning.PolicyVersionCatalog;
+import com.capitalone.identity.platform.versioning.PolicyVersionService;
 import org.apache.logging.log4j.util.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 
 public class DecisionPolicyRuntimeContext implements
         PolicyRuntimeContext<DecisionPolicyRequest, DecisionPolicyResponse>,
@@ -32,6 +42,15 @@ public class DecisionPolicyRuntimeContext implements
 
     private static final Logger logger = LoggerFactory.getLogger(DecisionPolicyRuntimeContext.class);
 
+    private static final PolicyResult<DecisionPolicyResponse> EXECUTION_ERROR = new PolicyResult.Failure<>(
+            new PolicyErrorInfo(PolicyError.POLICY_EXECUTION_ERROR, "Decision execution error."));
+
+    private static final PolicyResult<DecisionPolicyResponse> INVOCATION_ERROR = new PolicyResult.Failure<>(
+            new PolicyErrorInfo(PolicyError.POLICY_EXECUTION_ERROR, "Decision invocation error."));
+
+    private static final PolicyResult<DecisionPolicyResponse> COMPILATION_ERROR = new PolicyResult.Failure<>(
+            new PolicyErrorInfo(PolicyError.POLICY_EXECUTION_ERROR, "Decision runtime compilation error."));
+
     private static DecisionPolicyRuntimeLoadService newDefaultService() {
         return new DecisionPolicyRuntimeLoadService(
                 DecisionEngineService.createDefaultConfiguration(
@@ -51,16 +70,57 @@ public class DecisionPolicyRuntimeContext implements
     private final RuleDefinitionModelGroupFactory ruleDefinitionModelGroupFactory =
             new RuleDefinitionModelGroupFactory();
 
-    private final Map<String, RuleDefinitionModelGroup> ruleItems = new HashMap<>();
-
-    private final ConfigManagementService configManagementService = new ConfigManagementService();
+    /**
+     * Invocation scopes of the loaded patches by policy name. Loads and unloads are serialized and replace whole
+     * arrays, so request threads read without locking and never see a half-applied load. Looking a patch up by name
+     * and version numbers needs no patch identifier string.
+     */
+    private final Map<String, InvocationScope[]> loadedPatches = new ConcurrentHashMap<>();
 
-    private final Map<String, EntityInfo> latestLoadedEntityVersionNumber = new HashMap<>();
+    private final Map<String, EntityInfo> latestLoadedEntityVersionNumber = new ConcurrentHashMap<>();
 
     private final ConfigMatchingStrategy configurationMatchingStrategy;
 
     private final String configEnvironment;
 
+    private final PolicyLatencyRecorder latencyRecorder;
+
+    private final DecisionResultCache resultCache;
+
+    private final DecisionRequestCoalescer requestCoalescer;
+
+    /**
+     * Names of the policies compiled at load in lazy compilation mode, or null if every policy is compiled at load.
+     */
+    private final Set<String> eagerlyCompiledPolicies;
+
+    /**
+     * Maximum number of patches kept compiled, or zero if unbounded.
+     */
+    private final int residentRuntimeBudget;
+
+    private final Object evictionLock = new Object();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private final LongAdder rehydrationCount = new LongAdder();
+
+    /**
+     * Incremented on every load and unload so that {@link PreparedDecision}s can tell when to re-bind.
+     */
+    private final AtomicLong loadGeneration = new AtomicLong();
+
+    /**
+     * Null if replaced patch versions are unloaded as soon as the patch replacing them is loaded.
+     */
+    private final PolicyVersionService versionService;
+
+    /**
+     * Replaced patch versions still loaded, mapped to the patch that replaced them. Each is unloaded once the version
+     * catalog resolves its successor, or no longer resolves it.
+     */
+    private final Map<EntityInfo, DecisionPatch> pendingRetirements = new ConcurrentHashMap<>();
+
     public DecisionPolicyRuntimeContext() {
         this(newDefaultService());
     }
@@ -93,9 +153,110 @@ public class DecisionPolicyRuntimeContext implements
     public DecisionPolicyRuntimeContext(DecisionPolicyRuntimeLoadService decisionPolicyRuntimeLoadService,
                                         ConfigMatchingStrategy configMatchingStrategy,
                                         String configEnvironment) {
+        this(decisionPolicyRuntimeLoadService, configMatchingStrategy, configEnvironment, new Options());
+    }
+
+    /**
+     * @param options optional runtime features; read once, so later changes to it have no effect
+     * @see #DecisionPolicyRuntimeContext(DecisionPolicyRuntimeLoadService, ConfigMatchingStrategy, String)
+     */
+    public DecisionPolicyRuntimeContext(DecisionPolicyRuntimeLoadService decisionPolicyRuntimeLoadService,
+                                        ConfigMatchingStrategy configMatchingStrategy,
+                                        String configEnvironment,
+                                        Options options) {
+        this.residentRuntimeBudget = options.residentRuntimeBudget;
+        this.eagerlyCompiledPolicies = options.eagerlyCompiledPolicies;
+        this.latencyRecorder = Objects.requireNonNull(options.latencyRecorder);
+        this.resultCache = options.resultCache;
+        this.requestCoalescer = options.requestCoalescer;
         this.decisionPolicyRuntimeLoadService = Objects.requireNonNull(decisionPolicyRuntimeLoadService);
         this.configurationMatchingStrategy = Objects.requireNonNull(configMatchingStrategy);
         this.configEnvironment = configEnvironment;
+        this.versionService = options.versionService;
+        if (versionService != null) {
+            versionService.addCatalogListener(this::unloadSwitchedVersions);
+        }
+    }
+
+    /**
+     * Optional features of a {@link DecisionPolicyRuntimeContext}. Every feature is disabled by default.
+     */
+    public static final class Options {
+
+        private PolicyLatencyRecorder latencyRecorder = PolicyLatencyRecorder.NOOP;
+
+        private DecisionResultCache resultCache;
+
+        private DecisionRequestCoalescer requestCoalescer;
+
+        private Set<String> eagerlyCompiledPolicies;
+
+        private int residentRuntimeBudget;
+
+        private PolicyVersionService versionService;
+
+        /**
+         * @param latencyRecorder receives argument preparation, engine evaluation and result conversion latencies
+         *                        keyed by policy name, patch version and dmn name
+         */
+        public Options latencyRecorder(PolicyLatencyRecorder latencyRecorder) {
+            this.latencyRecorder = Objects.requireNonNull(latencyRecorder);
+            return this;
+        }
+
+        /**
+         * @param resultCache cache of successful decision results. Entries of a patch are dropped whenever that patch
+         *                    is loaded or unloaded. Null disables caching.
+         */
+        public Options resultCache(DecisionResultCache resultCache) {
+            this.resultCache = resultCache;
+            return this;
+        }
+
+        /**
+         * @param requestCoalescer single-flight coalescer, so that identical concurrent requests share one evaluation.
+         *                         Null disables coalescing.
+         */
+        public Options requestCoalescer(DecisionRequestCoalescer requestCoalescer) {
+            this.requestCoalescer = requestCoalescer;
+            return this;
+        }
+
+        /**
+         * @param eagerlyCompiledPolicies names of the policies whose dmns are compiled at load. Any other policy is
+         *                                compiled by the first invocation of each of its patches, so errors in its
+         *                                dmns surface as failed invocations rather than failed loads. A patch
+         *                                replacing one that was already compiled is compiled at load. Null compiles
+         *                                every policy at load.
+         */
+        public Options eagerlyCompiledPolicies(Set<String> eagerlyCompiledPolicies) {
+            this.eagerlyCompiledPolicies = eagerlyCompiledPolicies == null
+                    ? null : Collections.unmodifiableSet(new HashSet<>(eagerlyCompiledPolicies));
+            return this;
+        }
+
+        /**
+         * @param residentRuntimeBudget maximum number of patches kept compiled. When a compilation exceeds it, the
+         *                              patches invoked least recently are evicted: their decision runtimes are
+         *                              removed and compiled again from the retained rules by their next invocation.
+         *                              Patches of eagerly compiled policies and patches with invocations in flight
+         *                              are not evicted. Zero or less keeps every patch compiled.
+         */
+        public Options residentRuntimeBudget(int residentRuntimeBudget) {
+            this.residentRuntimeBudget = Math.max(residentRuntimeBudget, 0);
+            return this;
+        }
+
+        /**
+         * @param versionService catalog that callers resolve policy versions against. A patch replaced by a different
+         *                       patch version stays loaded until the catalog resolves the new version, so callers
+         *                       that resolved the old one just before the switch do not fail. Null unloads the
+         *                       replaced patch as soon as the new one is loaded.
+         */
+        public Options versionService(PolicyVersionService versionService) {
+            this.versionService = versionService;
+            return this;
+        }
     }
 
     private static String getPatchIdentifier(LogicalVersion info) {
@@ -107,6 +268,14 @@ public class DecisionPolicyRuntimeContext implements
         return new ArrayList<>(latestLoadedEntityVersionNumber.values());
     }
 
+    /**
+     * Different entities may be loaded concurrently: their dmns are compiled in parallel, and only publication to the
+     * registry is serialized. Loads of the same entity must not overlap.
+     * <p>
+     * The new patch is compiled next to the one it replaces and published in one step. A replaced patch of a different
+     * version stays loaded until the version catalog resolves the new one, then is unloaded. Invocations in flight on
+     * an unloaded patch complete on it, and its runtime is removed once they have.
+     */
     @Override
     public void load(Entity entity) {
         if (entity instanceof Entity.Policy) {
@@ -115,27 +284,64 @@ public class DecisionPolicyRuntimeContext implements
             // item already loaded
             if (entity.getInfo().equals(prevEntity)) return;
 
-            ((Entity.Policy) entity).getConfigManagementModelForEnv(configEnvironment).ifPresent(model -> {
-                configManagementService.setPolicyConfiguration(patchId, model);
-            });
+            ConfigManagementModel policyConfiguration =
+                    ((Entity.Policy) entity).getConfigManagementModelForEnv(configEnvironment).orElse(null);
 
             RuleDefinitionModelGroup ruleModelGroup = ruleDefinitionModelGroupFactory.create(
                     patchId,
                     RuleDefinitionModelGroupFactory.convertItemsToMap(((Entity.Policy) entity).getRuleItems())
             );
 
-            decisionPolicyRuntimeLoadService.loadRulesIntoDecisionRuntime(ruleModelGroup);
-            ruleItems.put(patchId, ruleModelGroup);
-            latestLoadedEntityVersionNumber.put(entity.getId(), entity.getInfo());
-
-            // clean up the previous patch version
-            String prevPatchId = prevEntity == null ? null : getPatchIdentifier(prevEntity);
-            if (!patchId.equals(prevPatchId)) {
-                // clean up the prior patch
+            InvocationScope prevScope = prevEntity == null ? null : findScope(prevEntity);
+            RuleDefinitionModelGroup predecessor = prevScope != null && prevScope.patch.isCompiled()
+                    ? prevScope.patch.ruleDefinitionModelGroup : null;
+            // a patch replacing a compiled one is likely to be invoked too
+            boolean eager = eagerlyCompiledPolicies == null
+                    || eagerlyCompiledPolicies.contains(entity.getInfo().getName())
+                    || predecessor != null;
+            if (eager) {
+                // compile outside of the registry lock, reusing what the previous patch already compiled
+                decisionPolicyRuntimeLoadService.loadRulesIntoDecisionRuntime(ruleModelGroup, predecessor);
+            }
+            DecisionPatch patch = new DecisionPatch(entity.getInfo(), ruleModelGroup, policyConfiguration, eager);
+            DecisionPatch replaced;
+            boolean replacedCompiled;
+            synchronized (this) {
+                replaced = putPatch(patch);
+                loadGeneration.incrementAndGet();
+                // the runtime id now belongs to the new patch, so the replaced one leaves its runtime in place
+                replacedCompiled = replaced != null && replaced.retire(group -> { }, patch);
+                if (replaced != null) {
+                    invalidateResults(replaced);
+                    pendingRetirements.replaceAll((pending, successor) -> successor == replaced ? patch : successor);
+                }
+                // a replaced version that is loaded again is no longer pending
+                pendingRetirements.keySet().removeIf(patch::isVersion);
+                latestLoadedEntityVersionNumber.put(entity.getId(), entity.getInfo());
+            }
+            if (replacedCompiled && !eager) {
+                // the replaced content was compiled by an invocation after the check above, under the same runtime id
                 try {
-                    unload(prevEntity);
+                    compile(patch);
                 } catch (Exception e) {
-                    logger.error(String.format("Error cleaning up this entity patch:=%s", prevPatchId), e);
+                    // left pending, so the next invocation compiles it again
+                    logger.error(String.format("Error compiling decision runtime of patch:=%s", patchId), e);
+                }
+            }
+
+            if (eager) {
+                evictColdRuntimes(patch);
+            }
+
+            // clean up the previous patch version once callers can no longer resolve it
+            if (prevEntity != null && !patchId.equals(getPatchIdentifier(prevEntity))) {
+                if (versionService == null) {
+                    unloadReplacedVersion(prevEntity);
+                } else {
+                    synchronized (this) {
+                        pendingRetirements.put(prevEntity, patch);
+                    }
+                    unloadSwitchedVersions(versionService.getCatalog());
                 }
             }
 
@@ -145,85 +351,481 @@ public class DecisionPolicyRuntimeContext implements
         }
     }
 
+    /**
+     * Invocations in flight on the unloaded patch complete on it. Callers that looked the patch up just before it was
+     * unloaded are served by the patch of the same entity that replaced it, if any.
+     */
     @Override
-    public void unload(EntityInfo info) {
-        String patchIdentifier = getPatchIdentifier(info);
-        RuleDefinitionModelGroup remove = ruleItems.remove(patchIdentifier);
+    public synchronized void unload(EntityInfo info) {
+        DecisionPatch remove = removePatch(info);
         if (remove != null) {
-            decisionPolicyRuntimeLoadService.removeDecisionRuntime(remove);
+            EntityInfo current = latestLoadedEntityVersionNumber.get(info.getId());
+            InvocationScope successor = current == null ? null : findScope(current);
+            remove.retire(this::removeRetiredRuntime, successor == null ? null : successor.patch);
+            pendingRetirements.keySet().removeIf(remove::isVersion);
         }
-        configManagementService.deletePolicyConfiguration(patchIdentifier);
         latestLoadedEntityVersionNumber.remove(info.getId(), info);
+        loadGeneration.incrementAndGet();
+        if (remove != null) {
+            invalidateResults(remove);
+            // versions waiting for the removed patch to be resolvable have nothing left to switch to
+            List<EntityInfo> orphaned = new ArrayList<>();
+            pendingRetirements.forEach((pending, successor) -> {
+                if (successor == remove) {
+                    orphaned.add(pending);
+                }
+            });
+            orphaned.forEach(this::unloadReplacedVersion);
+        }
+        latencyRecorder.remove(info.getName(), info.getPatchVersionString());
+    }
+
+    /**
+     * Unloads the replaced versions whose successor the catalog resolves, or that it no longer resolves itself.
+     */
+    private synchronized void unloadSwitchedVersions(PolicyVersionCatalog catalog) {
+        List<EntityInfo> switched = new ArrayList<>();
+        pendingRetirements.forEach((pending, successor) -> {
+            if (catalog.contains(successor.version) || !catalog.contains(pending)) {
+                switched.add(pending);
+            }
+        });
+        switched.forEach(this::unloadReplacedVersion);
+    }
 
+    private void unloadReplacedVersion(EntityInfo replaced) {
+        pendingRetirements.remove(replaced);
+        try {
+            unload(replaced);
+        } catch (Exception e) {
+            logger.error(String.format("Error cleaning up this entity patch:=%s", getPatchIdentifier(replaced)), e);
+        }
+    }
+
+    private void removeRetiredRuntime(RuleDefinitionModelGroup group) {
+        try {
+            decisionPolicyRuntimeLoadService.removeDecisionRuntimeIfCurrent(group);
+        } catch (Exception e) {
+            logger.error(String.format("Error removing decision runtime of patch:=%s", group.getRuntimeId()), e);
+        }
+    }
+
+    /**
+     * @return the replaced patch of the same version, or null
+     */
+    private DecisionPatch putPatch(DecisionPatch patch) {
+        InvocationScope scope = new InvocationScope(patch);
+        DecisionPatch[] replaced = new DecisionPatch[1];
+        loadedPatches.compute(patch.policyName, (name, scopes) -> {
+            if (scopes == null) {
+                return new InvocationScope[]{scope};
+            }
+            for (int i = 0; i < scopes.length; i++) {
+                if (scopes[i].patch.isVersion(patch)) {
+                    replaced[0] = scopes[i].patch;
+                    InvocationScope[] next = scopes.clone();
+                    next[i] = scope;
+                    return next;
+                }
+            }
+            InvocationScope[] next = Arrays.copyOf(scopes, scopes.length + 1);
+            next[scopes.length] = scope;
+            return next;
+        });
+        return replaced[0];
+    }
+
+    private DecisionPatch removePatch(LogicalVersion policyVersion) {
+        InvocationScope scope = findScope(policyVersion);
+        if (scope == null) {
+            return null;
+        }
+        removeScope(scope.patch);
+        return scope.patch;
+    }
+
+    private void removeScope(DecisionPatch patch) {
+        loadedPatches.computeIfPresent(patch.policyName, (name, scopes) -> {
+            InvocationScope[] next = Arrays.stream(scopes)
+                    .filter(scope -> scope.patch != patch)
+                    .toArray(InvocationScope[]::new);
+            return next.length == 0 ? null : next;
+        });
+    }
+
+    /**
+     * @return scope of the loaded patch, or null if it is not loaded
+     */
+    private InvocationScope findScope(LogicalVersion policyVersion) {
+        InvocationScope[] scopes = loadedPatches.get(policyVersion.getName());
+        if (scopes != null) {
+            for (InvocationScope scope : scopes) {
+                if (scope.patch.isVersion(policyVersion)) {
+                    return scope;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return scope of the loaded patch with the same version, or null if none is loaded
+     */
+    private InvocationScope findScope(DecisionPatch patch) {
+        InvocationScope[] scopes = loadedPatches.get(patch.policyName);
+        if (scopes != null) {
+            for (InvocationScope scope : scopes) {
+                if (scope.patch.isVersion(patch)) {
+                    return scope;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return false if the patch was retired before it could be compiled
+     * @throws RuntimeException if compilation failed
+     */
+    private boolean compile(DecisionPatch patch) {
+        boolean compiled = patch.compile(group -> {
+            final long start = System.nanoTime();
+            decisionPolicyRuntimeLoadService.loadRulesIntoDecisionRuntime(group);
+            if (patch.isEvicted()) {
+                rehydrationCount.increment();
+            }
+            if (latencyRecorder != PolicyLatencyRecorder.NOOP) {
+                latencyRecorder.record(PolicyInvocationStage.RUNTIME_COMPILATION, patch.policyName,
+                        patch.patchVersion, null, System.nanoTime() - start);
+            }
+        });
+        if (compiled) {
+            patch.touch(System.nanoTime());
+            evictColdRuntimes(patch);
+        }
+        return compiled;
+    }
+
+    /**
+     * Evicts the least recently invoked patches until the resident runtime budget is met.
+     *
+     * @param compiled patch that was just compiled, which is never evicted
+     */
+    private void evictColdRuntimes(DecisionPatch compiled) {
+        if (residentRuntimeBudget == 0) {
+            return;
+        }
+        synchronized (evictionLock) {
+            // snapshot invocation times, as they keep changing while sorting
+            List<Map.Entry<DecisionPatch, Long>> resident = new ArrayList<>();
+            for (InvocationScope[] scopes : loadedPatches.values()) {
+                for (InvocationScope scope : scopes) {
+                    if (scope.patch.isCompiled()) {
+                        resident.add(new AbstractMap.SimpleImmutableEntry<>(scope.patch, scope.patch.getLastInvoked()));
+                    }
+                }
+            }
+            int excess = resident.size() - residentRuntimeBudget;
+            if (excess <= 0) {
+                return;
+            }
+            resident.sort(Map.Entry.comparingByValue());
+            for (Map.Entry<DecisionPatch, Long> entry : resident) {
+                DecisionPatch patch = entry.getKey();
+                if (excess == 0) {
+                    break;
+                }
+                if (patch != compiled
+                        && (eagerlyCompiledPolicies == null || !eagerlyCompiledPolicies.contains(patch.policyName))
+                        && patch.evict(decisionPolicyRuntimeLoadService::removeDecisionRuntime)) {
+                    evictionCount.increment();
+                    excess--;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of loaded patches whose decision runtime is compiled
+     */
+    public int getResidentRuntimeCount() {
+        int count = 0;
+        for (InvocationScope[] scopes : loadedPatches.values()) {
+            for (InvocationScope scope : scopes) {
+                if (scope.patch.isCompiled()) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return number of decision runtimes evicted to meet the resident runtime budget
+     */
+    public long getRuntimeEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * @return number of evicted decision runtimes compiled again by an invocation. Their compilation latency is
+     * recorded as {@link PolicyInvocationStage#RUNTIME_COMPILATION}.
+     */
+    public long getRuntimeRehydrationCount() {
+        return rehydrationCount.sum();
+    }
+
+    private InvocationScope getScope(LogicalVersion policyVersion) {
+        InvocationScope scope = findScope(policyVersion);
+        return scope != null ? scope : new InvocationScope(policyVersion);
+    }
+
+    long getLoadGeneration() {
+        return loadGeneration.get();
+    }
+
+    private void invalidateResults(DecisionPatch patch) {
+        if (resultCache != null) {
+            resultCache.invalidate(patch.resultIdentifier);
+        }
     }
 
     @Override
     public PolicyResult<DecisionPolicyResponse> invoke(LogicalVersion policyVersion, DecisionPolicyRequest request) {
-        // validate
-        String reservedConfigPrefix = "config.";
-        Set<String> keys = request.getBody().keySet();
-        Optional<String> invalidKey = keys.stream().filter(key -> key.startsWith(reservedConfigPrefix)).findFirst();
-        if (invalidKey.isPresent()) {
-            PolicyErrorInfo errorInfo = new PolicyErrorInfo(PolicyError.BAD_REQUEST_PARAMETER_RESERVED_PREFIX,
-                    Strings.join(keys, ','));
-            return new PolicyResult.Failure<>(errorInfo);
-        }
-
-        // prepare arguments
-        String identifier = getPatchIdentifier(policyVersion);
-        final Map<String, Object> argument = new HashMap<>(request.getBody());
-
-        // config-management-based arguments
-        ConfigManagementModel policyConfiguration = configManagementService.getPolicyConfiguration(identifier);
-        Map<String, Serializable> configMap = Collections.emptyMap();
-        if (policyConfiguration != null) {
-            // business event must match a configuration if defined in the policy
-            configMap = policyConfiguration.getConfiguration(
-                    request.getBusinessEventName(),
-                    configurationMatchingStrategy).orElse(null);
-        }
-        if (configMap == null) {
-            PolicyErrorInfo errorInfo = new PolicyErrorInfo(PolicyError.BAD_REQUEST_MISSING_CONFIG,
-                    String.format("Could not find a configuration that matches supplied business event '%s'",
-                            request.getBusinessEventName()));
-            return new PolicyResult.Failure<>(errorInfo);
-        }
-        configMap.forEach((key, value) -> {
-            argument.put(reservedConfigPrefix + key, value);
-        });
-        DecisionEvaluateRequest decisionEvaluateRequest = DecisionEvaluateRequest.builder()
-                .runtimeId(identifier)
-                .dmnName(request.getDmnName())
-                .input(argument)
-                .build();
-
-        // evaluate
-        RuleDefinitionModelGroup ruleDefinitionModelGroup = ruleItems.get(identifier);
-        if (ruleDefinitionModelGroup == null) {
-            throw new IllegalArgumentException("Requested Policy Not Found. identifier:=" + identifier);
-        } else if (ruleDefinitionModelGroup.getRuleDefinitionModelList().stream().noneMatch(model -> model.getRuleShortName().equals(request.getDmnName()))) {
-            PolicyErrorInfo errorInfo = new PolicyErrorInfo(PolicyError.BAD_REQUEST_MISSING_DMN_FILE,
-                    String.format("Could not find dmn with name '%s' in requested policy.", request.getDmnName()));
-            return new PolicyResult.Failure<>(errorInfo);
+        return getScope(policyVersion).invoke(request);
+    }
+
+    /**
+     * Looks up the patch once for the whole list.
+     */
+    @Override
+    public List<PolicyResult<DecisionPolicyResponse>> invokeAll(LogicalVersion policyVersion,
+                                                                 List<DecisionPolicyRequest> requests) {
+        InvocationScope scope = getScope(policyVersion);
+        List<PolicyResult<DecisionPolicyResponse>> results = new ArrayList<>(requests.size());
+        for (DecisionPolicyRequest request : requests) {
+            results.add(scope.invoke(request));
         }
+        return results;
+    }
 
-        try {
-            DecisionEvaluateResponse response = decisionPolicyRuntimeLoadService.evaluate(decisionEvaluateRequest);
-            if (response.getStatus() == DecisionEngineStatus.SUCCESS) {
-                Map<String, Serializable> resultMap = new HashMap<>();
-                response.getResult().forEach((key, value) -> resultMap.put(key, (Serializable) value));
-                return new PolicyResult.Success<>(new DecisionPolicyResponse(resultMap));
-            } else {
-                PolicyErrorInfo errorInfo = new PolicyErrorInfo(PolicyError.POLICY_EXECUTION_ERROR,
-                        "Decision execution error.");
+    /**
+     * Prepares a reusable handle for one dmn of a policy and one business event. The handle resolves the version,
+     * the patch and its configuration once, and re-binds itself whenever the loaded versions or patches change.
+     *
+     * @param versionService    resolves {@code policyAddress} and {@code policyVersion} against the loaded versions
+     * @param policyAddress     policy full name
+     * @param policyVersion     major, minor or patch version selector
+     * @param dmnName           dmn to evaluate
+     * @param businessEventName business event used to match configuration
+     * @throws IllegalArgumentException if the version does not resolve to a loaded patch that contains the dmn
+     */
+    public PreparedDecision prepare(PolicyVersionService versionService, String policyAddress, String policyVersion,
+                                    String dmnName, String businessEventName) {
+        return new PreparedDecision(this, versionService, policyAddress, policyVersion, dmnName, businessEventName);
+    }
+
+    /**
+     * @return a scope for the patch with the argument template of the business event already built, or null if the
+     * patch is not loaded or does not contain the dmn
+     */
+    InvocationScope bind(LogicalVersion policyVersion, String dmnName, String businessEventName) {
+        InvocationScope scope = findScope(policyVersion);
+        if (scope == null || !scope.patch.dmnNames.contains(dmnName)) {
+            return null;
+        }
+        scope.patch.getArgumentTemplate(businessEventName, configurationMatchingStrategy);
+        return scope;
+    }
+
+    /**
+     * Per-patch state looked up once and shared by every request evaluated against that patch. A loaded patch has one
+     * scope, created at load; a scope for a patch that is not loaded is created per call and fails every request.
+     */
+    final class InvocationScope {
+
+        final String policyName;
+
+        final String patchVersion;
+
+        final String identifier;
+
+        /**
+         * Null if the patch is not loaded.
+         */
+        final DecisionPatch patch;
+
+        InvocationScope(DecisionPatch patch) {
+            this.policyName = patch.policyName;
+            this.patchVersion = patch.patchVersion;
+            this.identifier = patch.identifier;
+            this.patch = patch;
+        }
+
+        InvocationScope(LogicalVersion policyVersion) {
+            this.policyName = policyVersion.getName();
+            this.patchVersion = policyVersion.getPatchVersionString();
+            this.identifier = policyName + "/" + patchVersion;
+            this.patch = null;
+        }
+
+        PolicyResult<DecisionPolicyResponse> invoke(DecisionPolicyRequest request) {
+            final long start = latencyRecorder != PolicyLatencyRecorder.NOOP ? System.nanoTime() : 0;
+            // validate
+            final Map<String, Serializable> body = request.getBody();
+            for (String key : body.keySet()) {
+                if (key.startsWith(DecisionPatch.RESERVED_CONFIG_PREFIX)) {
+                    PolicyErrorInfo errorInfo = new PolicyErrorInfo(PolicyError.BAD_REQUEST_PARAMETER_RESERVED_PREFIX,
+                            Strings.join(body.keySet(), ','));
+                    return new PolicyResult.Failure<>(errorInfo);
+                }
+            }
+
+            // a cached result implies the configuration and dmn lookups below succeeded for this patch
+            if (resultCache != null && patch != null) {
+                DecisionPolicyResponse cached = resultCache.get(patch.resultIdentifier, request);
+                if (cached != null) {
+                    return new PolicyResult.Success<>(cached);
+                }
+            }
+
+            if (requestCoalescer != null) {
+                return requestCoalescer.execute(identifier, request, patch,
+                        () -> evaluate(request, start));
+            }
+            return evaluate(request, start);
+        }
+
+        private PolicyResult<DecisionPolicyResponse> evaluate(DecisionPolicyRequest request, long start) {
+            // config-management-based arguments
+            Map<String, Object> template = getArgumentTemplate(request.getBusinessEventName());
+            if (template == null) {
+                PolicyErrorInfo errorInfo = new PolicyErrorInfo(PolicyError.BAD_REQUEST_MISSING_CONFIG,
+                        String.format("Could not find a configuration that matches supplied business event '%s'",
+                                request.getBusinessEventName()));
                 return new PolicyResult.Failure<>(errorInfo);
             }
-        } catch (Exception e) {
-            PolicyErrorInfo errorInfo = new PolicyErrorInfo(PolicyError.POLICY_EXECUTION_ERROR,
-                    "Decision invocation error.");
-            return new PolicyResult.Failure<>(errorInfo);
+
+            if (patch == null) {
+                throw new IllegalArgumentException("Requested Policy Not Found. identifier:=" + identifier);
+            } else if (!patch.dmnNames.contains(request.getDmnName())) {
+                PolicyErrorInfo errorInfo = new PolicyErrorInfo(PolicyError.BAD_REQUEST_MISSING_DMN_FILE,
+                        String.format("Could not find dmn with name '%s' in requested policy.", request.getDmnName()));
+                return new PolicyResult.Failure<>(errorInfo);
+            }
+
+            // patches loaded lazily or evicted are compiled by the invocation that needs them
+            while (!patch.enter()) {
+                try {
+                    if (!compile(patch)) {
+                        // unloaded or replaced since this scope was looked up
+                        DecisionPatch successor = patch.getSuccessor();
+                        InvocationScope replacement = successor != null ? findScope(successor) : null;
+                        return replacement != null ? replacement.evaluate(request, start) : INVOCATION_ERROR;
+                    }
+                } catch (RuntimeException e) {
+                    logger.error(String.format("Error compiling decision runtime of patch:=%s", identifier), e);
+                    return COMPILATION_ERROR;
+                }
+            }
+            try {
+                if (residentRuntimeBudget > 0) {
+                    patch.touch(System.nanoTime());
+                }
+                return evaluateCompiled(request, template, start);
+            } finally {
+                patch.exit();
+            }
+        }
+
+        private PolicyResult<DecisionPolicyResponse> evaluateCompiled(DecisionPolicyRequest request,
+                                                                      Map<String, Object> template, long start) {
+            final boolean timed = latencyRecorder != PolicyLatencyRecorder.NOOP;
+            // the engine reads the body and the template through one view rather than a merged copy
+            DecisionEvaluateRequest decisionEvaluateRequest = DecisionEvaluateRequest.builder()
+                    .runtimeId(identifier)
+                    .dmnName(request.getDmnName())
+                    .input(new DecisionArguments(request.getBody(), template))
+                    .build();
+
+            if (timed) {
+                start = record(PolicyInvocationStage.ARGUMENT_PREPARATION, request.getDmnName(), start);
+            }
+
+            // evaluate
+            try {
+                DecisionEvaluateResponse response = decisionPolicyRuntimeLoadService.evaluate(decisionEvaluateRequest);
+                if (timed) {
+                    start = record(PolicyInvocationStage.ENGINE_EVALUATION, request.getDmnName(), start);
+                }
+                if (response.getStatus() != DecisionEngineStatus.SUCCESS) {
+                    return EXECUTION_ERROR;
+                }
+                Map<String, Serializable> resultMap = asSerializableMap(response.getResult());
+                if (resultMap == null) {
+                    return INVOCATION_ERROR;
+                }
+                DecisionPolicyResponse decisionResponse = new DecisionPolicyResponse(resultMap);
+                if (resultCache != null) {
+                    // keyed by this load of the patch, so a reload during evaluation cannot receive the result
+                    decisionResponse = resultCache.put(patch.resultIdentifier, request, decisionResponse);
+                }
+                PolicyResult<DecisionPolicyResponse> result = new PolicyResult.Success<>(decisionResponse);
+                if (timed) {
+                    record(PolicyInvocationStage.RESULT_CONVERSION, request.getDmnName(), start);
+                }
+                return result;
+            } catch (Exception e) {
+                return INVOCATION_ERROR;
+            }
+        }
+
+        /**
+         * @see DecisionPatch#getArgumentTemplate
+         */
+        private Map<String, Object> getArgumentTemplate(String businessEventName) {
+            return patch == null
+                    ? Collections.emptyMap()
+                    : patch.getArgumentTemplate(businessEventName, configurationMatchingStrategy);
+        }
+
+        /**
+         * @return the end of the recorded stage, which is the start of the next one
+         */
+        private long record(PolicyInvocationStage stage, String dmnName, long start) {
+            final long end = System.nanoTime();
+            latencyRecorder.record(stage, policyName, patchVersion, dmnName, end - start);
+            return end;
+        }
+
+        /**
+         * @return input data names declared by the dmn, excluding the ones supplied from configuration
+         */
+        List<String> getInputNames(String dmnName) {
+            for (RuleDefinitionModel model : patch.ruleDefinitionModelGroup.getRuleDefinitionModelList()) {
+                if (model.getRuleShortName().equals(dmnName)) {
+                    return DmnInputDataParser.parseInputNames(model.getContent()).stream()
+                            .filter(name -> !name.startsWith(DecisionPatch.RESERVED_CONFIG_PREFIX))
+                            .distinct()
+                            .collect(Collectors.toList());
+                }
+            }
+            return Collections.emptyList();
         }
+    }
 
+    /**
+     * @return a mutable copy of the engine result, or null if a value is not serializable
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Serializable> asSerializableMap(Map<String, ?> result) {
+        for (Object value : result.values()) {
+            if (value != null && !(value instanceof Serializable)) {
+                return null;
+            }
+        }
+        // callers may add to the result, and the engine may reuse its map
+        return new HashMap<>((Map<String, Serializable>) result);
     }
 
 }
@@ -0,0 +1,100 @@
+package com.capitalone.identity.platform;
+
+import com.capitalone.identity.platform.runtime.PolicyError;
+import com.capitalone.identity.platform.runtime.PolicyErrorInfo;
+import com.capitalone.identity.platform.runtime.PolicyResult;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight coalescing of identical concurrent decision requests for {@link DecisionPolicyRuntimeContext}.
+ * <p>
+ * The first caller for a {@link DecisionRequestKey} evaluates; callers arriving while that evaluation is in flight wait
+ * for it and receive the same {@link PolicyResult}. Nothing is retained once an evaluation completes, so this works
+ * with or without a {@link DecisionResultCache}. Keys include the patch identifier, and a caller that observes a
+ * different loaded rule group than the one in flight (the patch content was replaced) evaluates on its own, so results
+ * are never shared across patches or reloads.
+ */
+public class DecisionRequestCoalescer {
+
+    private final Map<DecisionRequestKey, Flight> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder evaluationCount = new LongAdder();
+
+    private final LongAdder coalescedCount = new LongAdder();
+
+    /**
+     * @param generation identity of the loaded content the evaluation runs against
+     */
+    PolicyResult<DecisionPolicyResponse> execute(String patchIdentifier, DecisionPolicyRequest request,
+                                                 Object generation,
+                                                 Supplier<PolicyResult<DecisionPolicyResponse>> evaluation) {
+        DecisionRequestKey key = new DecisionRequestKey(patchIdentifier, request);
+        Flight flight = new Flight(generation);
+        Flight existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null && existing.generation == generation) {
+            coalescedCount.increment();
+            return await(existing);
+        }
+        evaluationCount.increment();
+        try {
+            PolicyResult<DecisionPolicyResponse> result = evaluation.get();
+            flight.result.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            if (existing == null) {
+                inFlight.remove(key, flight);
+            }
+        }
+    }
+
+    private static PolicyResult<DecisionPolicyResponse> await(Flight flight) {
+        try {
+            return flight.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new PolicyResult.Failure<>(new PolicyErrorInfo(PolicyError.POLICY_EXECUTION_ERROR,
+                    "Decision invocation interrupted."));
+        } catch (ExecutionException e) {
+            // rethrow the leader's failure as the leader saw it
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @return number of evaluations that ran
+     */
+    public long getEvaluationCount() {
+        return evaluationCount.sum();
+    }
+
+    /**
+     * @return number of requests that shared an in-flight evaluation instead of running their own
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.sum();
+    }
+
+    private static final class Flight {
+        final Object generation;
+        final CompletableFuture<PolicyResult<DecisionPolicyResponse>> result = new CompletableFuture<>();
+
+        Flight(Object generation) {
+            this.generation = generation;
+        }
+    }
+}
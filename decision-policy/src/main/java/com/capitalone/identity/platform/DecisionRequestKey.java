@@ -0,0 +1,53 @@
+package com.capitalone.identity.platform;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Identity of a decision request against a loaded patch: patch identifier, dmn name, business event and request
+ * body. The body is compared by value; its hash only selects the bucket, so colliding bodies are never confused.
+ */
+final class DecisionRequestKey {
+
+    final String patchIdentifier;
+
+    private final String dmnName;
+
+    private final String businessEventName;
+
+    private final Map<String, Serializable> body;
+
+    private final int hash;
+
+    DecisionRequestKey(String patchIdentifier, DecisionPolicyRequest request) {
+        this(patchIdentifier, request.getDmnName(), request.getBusinessEventName(), request.getBody());
+    }
+
+    DecisionRequestKey(String patchIdentifier, String dmnName, String businessEventName,
+                       Map<String, Serializable> body) {
+        this.patchIdentifier = patchIdentifier;
+        this.dmnName = dmnName;
+        this.businessEventName = businessEventName;
+        this.body = body;
+        // Map.hashCode is defined over entries, so it does not depend on the map type or iteration order
+        this.hash = Objects.hash(patchIdentifier, dmnName, businessEventName, body);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DecisionRequestKey)) return false;
+        DecisionRequestKey key = (DecisionRequestKey) o;
+        return hash == key.hash
+                && patchIdentifier.equals(key.patchIdentifier)
+                && dmnName.equals(key.dmnName)
+                && businessEventName.equals(key.businessEventName)
+                && body.equals(key.body);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,185 @@
+package com.capitalone.identity.platform;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded cache of successful decision results for {@link DecisionPolicyRuntimeContext}.
+ * <p>
+ * Decision evaluation is deterministic for a given patch, dmn, business event and request body, so a successful result
+ * can be reused for identical requests. Entries are keyed by all four (see {@link DecisionRequestKey}), so a hash
+ * collision can never return another request's result. Entries expire after a fixed time-to-live and the least
+ * recently used entries are evicted once the cache is full. The runtime context drops every entry of a patch when that
+ * patch is loaded or unloaded.
+ * <p>
+ * Entries are spread by key hash over up to {@value #MAX_SEGMENTS} segments, each an access-ordered map with its own
+ * lock and an equal share of the maximum size, so concurrent lookups of different keys rarely contend. Eviction is
+ * least recently used within a segment; caches too small to give every segment {@value #MIN_SEGMENT_SIZE} entries use
+ * fewer segments, down to a single one. Keys and responses are built before taking a segment lock.
+ */
+public class DecisionResultCache {
+
+    static final int MAX_SEGMENTS = 16;
+
+    static final int MIN_SEGMENT_SIZE = 64;
+
+    private final long timeToLiveNanos;
+
+    private final LongSupplier ticker;
+
+    private final Segment[] segments;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private final LongAdder expirationCount = new LongAdder();
+
+    private final LongAdder invalidationCount = new LongAdder();
+
+    /**
+     * @param maximumSize maximum number of cached results
+     * @param timeToLive  time after which a cached result is no longer used
+     */
+    public DecisionResultCache(int maximumSize, Duration timeToLive) {
+        this(maximumSize, timeToLive, System::nanoTime);
+    }
+
+    DecisionResultCache(int maximumSize, Duration timeToLive, LongSupplier ticker) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        if (timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("timeToLive must be positive: " + timeToLive);
+        }
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.ticker = Objects.requireNonNull(ticker);
+        int segmentCount = 1;
+        while (segmentCount < MAX_SEGMENTS && maximumSize / (segmentCount * 2) >= MIN_SEGMENT_SIZE) {
+            segmentCount *= 2;
+        }
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // the remainder goes to the first segments, so the sizes add up to the maximum
+            segments[i] = new Segment(maximumSize / segmentCount + (i < maximumSize % segmentCount ? 1 : 0));
+        }
+    }
+
+    private Segment segmentFor(DecisionRequestKey key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    /**
+     * @return the cached result, or null if there is none or it expired
+     */
+    DecisionPolicyResponse get(String patchIdentifier, DecisionPolicyRequest request) {
+        DecisionRequestKey key = new DecisionRequestKey(patchIdentifier, request);
+        Segment segment = segmentFor(key);
+        Entry entry;
+        synchronized (segment) {
+            // marks the entry as most recently used
+            entry = segment.entries.get(key);
+            if (entry != null && ticker.getAsLong() - entry.expiresAtNanos >= 0) {
+                segment.entries.remove(key);
+                expirationCount.increment();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        return entry.response;
+    }
+
+    /**
+     * @return the response as cached, which is the same content with an unmodifiable map
+     */
+    DecisionPolicyResponse put(String patchIdentifier, DecisionPolicyRequest request,
+                               DecisionPolicyResponse response) {
+        // copy the body so later changes to the caller's map cannot alter the key
+        DecisionRequestKey key = new DecisionRequestKey(patchIdentifier, request.getDmnName(),
+                request.getBusinessEventName(),
+                new HashMap<>(request.getBody()));
+        DecisionPolicyResponse cached =
+                new DecisionPolicyResponse(Collections.unmodifiableMap(response.getContent()));
+        Entry entry = new Entry(cached, ticker.getAsLong() + timeToLiveNanos);
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            // a replaced entry also becomes the most recently used
+            segment.entries.put(key, entry);
+            Iterator<Entry> eldest = segment.entries.values().iterator();
+            while (segment.entries.size() > segment.maximumSize) {
+                eldest.next();
+                eldest.remove();
+                evictionCount.increment();
+            }
+        }
+        return cached;
+    }
+
+    /**
+     * Drops every entry of the patch.
+     */
+    void invalidate(String patchIdentifier) {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.entries.keySet().removeIf(key -> {
+                    if (key.patchIdentifier.equals(patchIdentifier)) {
+                        invalidationCount.increment();
+                        return true;
+                    }
+                    return false;
+                });
+            }
+        }
+    }
+
+    public DecisionResultCacheStatistics getStatistics() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return new DecisionResultCacheStatistics(size, hitCount.sum(), missCount.sum(),
+                evictionCount.sum(), expirationCount.sum(), invalidationCount.sum());
+    }
+
+    /**
+     * Entries guarded by the segment's own lock.
+     */
+    private static final class Segment {
+        final int maximumSize;
+
+        /**
+         * Iterates from the least recently used entry.
+         */
+        final LinkedHashMap<DecisionRequestKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        Segment(int maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+    }
+
+    private static final class Entry {
+        final DecisionPolicyResponse response;
+        final long expiresAtNanos;
+
+        Entry(DecisionPolicyResponse response, long expiresAtNanos) {
+            this.response = response;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
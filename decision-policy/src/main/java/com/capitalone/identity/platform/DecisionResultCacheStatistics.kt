@@ -0,0 +1,16 @@
+package com.capitalone.identity.platform
+
+/**
+ * Point-in-time counters of a [DecisionResultCache].
+ */
+data class DecisionResultCacheStatistics(
+    val size: Int,
+    val hitCount: Long,
+    val missCount: Long,
+    val evictionCount: Long,
+    val expirationCount: Long,
+    val invalidationCount: Long,
+) {
+    val hitRatio: Double
+        get() = if (hitCount + missCount == 0L) 0.0 else hitCount.toDouble() / (hitCount + missCount)
+}
@@ -0,0 +1,266 @@
+package com.capitalone.identity.platform;
+
+import com.capitalone.identity.identitybuilder.model.LogicalVersion;
+import com.capitalone.identity.platform.runtime.PolicyResult;
+import com.capitalone.identity.platform.versioning.PolicyVersionService;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * A dmn of a policy, prepared once for one business event and invoked many times.
+ * <p>
+ * Preparing resolves the version selector, the loaded patch, its configuration for the business event and the input
+ * data names the dmn declares. Each declared input is given a slot, so callers fill {@link Inputs} by slot index, or by
+ * name without allocating a request map of their own. Inputs supplied from configuration ({@code config.} prefix) are
+ * not given a slot.
+ * <p>
+ * The handle keeps track of the version catalog generation and of the load generation of the
+ * {@link DecisionPolicyRuntimeContext}; when either one changes, the next invocation re-resolves and re-binds
+ * transparently. Slots are fixed at prepare time; prepare again to pick up inputs added by a later patch.
+ * <p>
+ * Instances are thread-safe. {@link Inputs} are not, and should not be shared between concurrent invocations.
+ *
+ * @see DecisionPolicyRuntimeContext#prepare
+ */
+public final class PreparedDecision {
+
+    private final DecisionPolicyRuntimeContext context;
+
+    private final PolicyVersionService versionService;
+
+    private final String policyAddress;
+
+    private final String policyVersion;
+
+    private final String dmnName;
+
+    private final String businessEventName;
+
+    private final String[] inputNames;
+
+    private final Map<String, Integer> slots;
+
+    private volatile Binding binding;
+
+    PreparedDecision(DecisionPolicyRuntimeContext context, PolicyVersionService versionService,
+                     String policyAddress, String policyVersion, String dmnName, String businessEventName) {
+        this.context = Objects.requireNonNull(context);
+        this.versionService = Objects.requireNonNull(versionService);
+        this.policyAddress = Objects.requireNonNull(policyAddress);
+        this.policyVersion = Objects.requireNonNull(policyVersion);
+        this.dmnName = Objects.requireNonNull(dmnName);
+        this.businessEventName = Objects.requireNonNull(businessEventName);
+        Binding initial = bind();
+        if (initial.scope == null) {
+            throw new IllegalArgumentException(String.format(
+                    "Could not prepare dmn '%s' of policy '%s' version '%s'.", dmnName, policyAddress, policyVersion));
+        }
+        this.inputNames = initial.scope.getInputNames(dmnName).toArray(new String[0]);
+        Map<String, Integer> slotMap = new HashMap<>();
+        for (int i = 0; i < inputNames.length; i++) {
+            slotMap.put(inputNames[i], i);
+        }
+        this.slots = Collections.unmodifiableMap(slotMap);
+        this.binding = initial;
+    }
+
+    /**
+     * @return input names in slot order
+     */
+    public List<String> getInputNames() {
+        return Collections.unmodifiableList(Arrays.asList(inputNames));
+    }
+
+    /**
+     * @return slot of the named input, or -1 if the dmn does not declare it
+     */
+    public int slotOf(String inputName) {
+        Integer slot = slots.get(inputName);
+        return slot == null ? -1 : slot;
+    }
+
+    public String getDmnName() {
+        return dmnName;
+    }
+
+    public String getBusinessEventName() {
+        return businessEventName;
+    }
+
+    /**
+     * @return an empty set of inputs for this decision
+     */
+    public Inputs newInputs() {
+        return new Inputs();
+    }
+
+    /**
+     * @return the loaded version this handle is currently bound to, or null if the selector no longer resolves
+     */
+    public LogicalVersion getPolicyVersion() {
+        return current().policy;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the version selector no longer resolves to a loaded patch containing the dmn
+     */
+    public PolicyResult<DecisionPolicyResponse> invoke(Inputs inputs) {
+        if (inputs.owner() != this) {
+            throw new IllegalArgumentException("Inputs were created by a different prepared decision.");
+        }
+        Binding current = current();
+        if (current.scope == null) {
+            throw new IllegalArgumentException(String.format("Requested Policy Not Found. address:=%s, version:=%s",
+                    policyAddress, policyVersion));
+        }
+        return current.scope.invoke(new DecisionPolicyRequest(inputs, businessEventName, dmnName));
+    }
+
+    private Binding current() {
+        Binding current = binding;
+        if (current.catalogGeneration != versionService.getGeneration()
+                || current.loadGeneration != context.getLoadGeneration()) {
+            // concurrent re-binds are idempotent, so the last one to publish wins
+            current = bind();
+            binding = current;
+        }
+        return current;
+    }
+
+    private Binding bind() {
+        // read generations first so that a change racing with the lookups below forces another re-bind
+        long catalogGeneration = versionService.getGeneration();
+        long loadGeneration = context.getLoadGeneration();
+        LogicalVersion policy = versionService.getCatalog().getPolicyVersion(policyAddress, policyVersion);
+        DecisionPolicyRuntimeContext.InvocationScope scope =
+                policy == null ? null : context.bind(policy, dmnName, businessEventName);
+        return new Binding(catalogGeneration, loadGeneration, policy, scope);
+    }
+
+    private static final class Binding {
+
+        final long catalogGeneration;
+
+        final long loadGeneration;
+
+        final LogicalVersion policy;
+
+        final DecisionPolicyRuntimeContext.InvocationScope scope;
+
+        Binding(long catalogGeneration, long loadGeneration, LogicalVersion policy,
+                DecisionPolicyRuntimeContext.InvocationScope scope) {
+            this.catalogGeneration = catalogGeneration;
+            this.loadGeneration = loadGeneration;
+            this.policy = policy;
+            this.scope = scope;
+        }
+    }
+
+    /**
+     * Slot-indexed input values, viewed as the body of a {@link DecisionPolicyRequest}. Unset slots are absent from
+     * the view.
+     */
+    public final class Inputs extends AbstractMap<String, Serializable> {
+
+        private final Serializable[] values = new Serializable[inputNames.length];
+
+        private int size;
+
+        private Inputs() {
+        }
+
+        private PreparedDecision owner() {
+            return PreparedDecision.this;
+        }
+
+        /**
+         * @param value input value, or null to clear the slot
+         * @return this
+         */
+        public Inputs set(int slot, Serializable value) {
+            if (values[slot] == null) {
+                if (value != null) size++;
+            } else if (value == null) {
+                size--;
+            }
+            values[slot] = value;
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException if the dmn does not declare the input
+         * @see #slotOf
+         */
+        public Inputs set(String inputName, Serializable value) {
+            int slot = slotOf(inputName);
+            if (slot < 0) {
+                throw new IllegalArgumentException(String.format("Dmn '%s' does not declare input '%s'.",
+                        dmnName, inputName));
+            }
+            return set(slot, value);
+        }
+
+        public Serializable get(int slot) {
+            return values[slot];
+        }
+
+        @Override
+        public Serializable get(Object key) {
+            Integer slot = slots.get(key);
+            return slot == null ? null : values[slot];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void clear() {
+            Arrays.fill(values, null);
+            size = 0;
+        }
+
+        @Override
+        public Set<Entry<String, Serializable>> entrySet() {
+            return new AbstractSet<Entry<String, Serializable>>() {
+                @Override
+                public Iterator<Entry<String, Serializable>> iterator() {
+                    return new Iterator<Entry<String, Serializable>>() {
+                        private int next = advance(0);
+
+                        private int advance(int from) {
+                            while (from < values.length && values[from] == null) from++;
+                            return from;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < values.length;
+                        }
+
+                        @Override
+                        public Entry<String, Serializable> next() {
+                            if (!hasNext()) throw new NoSuchElementException();
+                            Entry<String, Serializable> entry = new SimpleImmutableEntry<>(inputNames[next], values[next]);
+                            next = advance(next + 1);
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+    }
+
+}
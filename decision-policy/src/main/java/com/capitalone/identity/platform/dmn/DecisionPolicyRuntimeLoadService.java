@@ -11,55 +11,438 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Loads rule groups into the decision engine and routes evaluations to them.
+ * <p>
+ * Compiled dmns are content addressed: each distinct dmn file content is compiled once, as its own engine runtime, and
+ * shared by every runtime id with a dmn of that content, across policies and patch versions. The engine binds the
+ * policy info and supplemental attributes of its audit events when a runtime is loaded, so a shared runtime is loaded
+ * with the content hash as its only attribute rather than with the attribution of whichever policy compiled it first.
+ * Evaluations are attributed to their policy when they are routed, by the runtime id they are requested under. Shared
+ * runtimes are reference counted and removed from the engine when the last rule group using them is removed. Rule
+ * groups with a dmn that imports other models are compiled together as one runtime under their own runtime id and
+ * attributed to it, as the imports can only be resolved that way.
+ * <p>
+ * The content of every file is tracked per runtime id, so reloading rules only parses, hashes and compiles the files
+ * whose content changed.
+ * <p>
+ * Reloads are blue/green: new rules are compiled into engine runtimes of their own while the previous ones keep
+ * serving, and routing switches to them atomically. Replaced or removed routes retire once the evaluations in flight
+ * on them have drained; only then are their engine runtimes released.
+ */
 public class DecisionPolicyRuntimeLoadService {
     private static final Logger LOGGER = LogManager.getLogger(DecisionPolicyRuntimeLoadService.class);
 
+    private static final String SHARED_RUNTIME_ID_PREFIX = "dmn/";
+
+    private static final String OWNED_RUNTIME_ID_SEPARATOR = "#";
+
+    private static final String CONTENT_HASH_ATTRIBUTE = "contentHash";
+
     private final DecisionEngineService decisionEngineService;
-    private final Map<String, String> runtimeIdToEntityIdMap = new HashMap<>();
+    private final Map<String, String> runtimeIdToEntityIdMap = new ConcurrentHashMap<>();
+    private final Map<String, CompiledDmn> compiledDmnByEngineRuntimeId = new ConcurrentHashMap<>();
+    private final Map<String, RuntimeRoutes> routesByRuntimeId = new ConcurrentHashMap<>();
+    private final LongAdder compilationCount = new LongAdder();
+    private final AtomicLong ownedRuntimeSequence = new AtomicLong();
+    private final AtomicInteger drainingRoutesCount = new AtomicInteger();
 
     public DecisionPolicyRuntimeLoadService(DecisionEngineService decisionEngineService) {
         this.decisionEngineService = decisionEngineService;
     }
 
     /**
-     * Load the specified rules as a decision runtime into decision engine core library
+     * Load the specified rules as a decision runtime into decision engine core library. Rules of different
+     * runtime ids may be loaded concurrently. Loading a runtime id again replaces its rules; dmns whose content did
+     * not change are not compiled again.
      * @param ruleDefinitionModelGroup the rules
      */
     public void loadRulesIntoDecisionRuntime(final RuleDefinitionModelGroup ruleDefinitionModelGroup) {
+        loadRulesIntoDecisionRuntime(ruleDefinitionModelGroup, null);
+    }
+
+    /**
+     * @param predecessor loaded rules that these rules replace under another runtime id, such as the previous patch of
+     *                    the same policy, or null. Files with the same name and content as in the predecessor are
+     *                    not parsed, hashed or compiled again; these rules share the predecessor's compiled dmns.
+     * @see #loadRulesIntoDecisionRuntime(RuleDefinitionModelGroup)
+     */
+    public void loadRulesIntoDecisionRuntime(final RuleDefinitionModelGroup ruleDefinitionModelGroup,
+                                             final RuleDefinitionModelGroup predecessor) {
         final String runtimeId = ruleDefinitionModelGroup.getRuntimeId();
         final String identifier = ruleDefinitionModelGroup.getIdentifier();
         throwIfRuntimeIdConflictDetected(runtimeId, identifier);
-        final Map<String, String> dmnContentMap = new HashMap<>();
+        try {
+            loadRoutes(ruleDefinitionModelGroup, predecessor);
+        } catch (final RuntimeException e) {
+            if (!routesByRuntimeId.containsKey(runtimeId)) {
+                // nothing was loaded under the runtime id, so another identifier may claim it
+                runtimeIdToEntityIdMap.remove(runtimeId, identifier);
+            }
+            throw e;
+        }
+    }
+
+    private void loadRoutes(final RuleDefinitionModelGroup ruleDefinitionModelGroup,
+                            final RuleDefinitionModelGroup predecessor) {
+        final String runtimeId = ruleDefinitionModelGroup.getRuntimeId();
+        final List<RuleDefinitionModel> rules = ruleDefinitionModelGroup.getRuleDefinitionModelList();
+        final Map<String, String> contentHashes = hashSharedContent(rules, routesByRuntimeId.get(runtimeId),
+                predecessor == null ? null : routesByRuntimeId.get(predecessor.getRuntimeId()));
+        final RuntimeRoutes routes;
+        if (contentHashes != null) {
+            final Map<String, CompiledDmn> acquired = new HashMap<>();
+            final Map<String, String> contentByName = new HashMap<>();
+            try {
+                for (RuleDefinitionModel rule : rules) {
+                    acquired.put(rule.getRuleShortName(),
+                            acquire(rule, contentHashes.get(rule.getRuleShortName()), ruleDefinitionModelGroup));
+                    contentByName.put(rule.getRuleShortName(), rule.getContent());
+                }
+            } catch (final RuntimeException e) {
+                acquired.values().forEach(this::release);
+                throw e;
+            }
+            routes = new RuntimeRoutes(ruleDefinitionModelGroup, acquired, contentByName, null);
+        } else {
+            final Map<String, String> dmnContentMap = new HashMap<>();
+            rules.forEach(newRule -> dmnContentMap.put(newRule.getRuleShortName(), newRule.getContent()));
+            // a runtime of its own, so that the one it replaces keeps serving until it has drained
+            final String ownedRuntimeId =
+                    runtimeId + OWNED_RUNTIME_ID_SEPARATOR + ownedRuntimeSequence.incrementAndGet();
+            compile(ownedRuntimeId, dmnContentMap, createDecisionPolicyInfo(ruleDefinitionModelGroup),
+                    createSupplementalAttributes(ruleDefinitionModelGroup), ruleDefinitionModelGroup);
+            final Map<String, CompiledDmn> owned = new HashMap<>();
+            rules.forEach(rule -> owned.put(rule.getRuleShortName(),
+                    new CompiledDmn(null, ownedRuntimeId, rule.getRuleShortName())));
+            routes = new RuntimeRoutes(ruleDefinitionModelGroup, owned, Collections.emptyMap(), ownedRuntimeId);
+        }
+        final RuntimeRoutes previous = routesByRuntimeId.put(runtimeId, routes);
+        if (previous != null) {
+            retire(previous);
+        }
+    }
+
+    /**
+     * Stops routing evaluations to the rules. Their engine runtimes are released once evaluations in flight on them
+     * have completed.
+     */
+    public void removeDecisionRuntime(final RuleDefinitionModelGroup ruleDefinitionModelGroup) {
+        final String runtimeId = ruleDefinitionModelGroup.getRuntimeId();
+        final RuntimeRoutes routes = routesByRuntimeId.remove(runtimeId);
+        if (routes == null) {
+            runtimeIdToEntityIdMap.remove(runtimeId, ruleDefinitionModelGroup.getIdentifier());
+            decisionEngineService.removeDecisionRuntime(runtimeId);
+        } else {
+            unpublished(routes);
+        }
+    }
+
+    /**
+     * Stops routing evaluations to the rules if they are still the ones loaded under their runtime id. Rules loaded
+     * since under the same runtime id, such as a reload of the same patch, are kept.
+     *
+     * @see #removeDecisionRuntime(RuleDefinitionModelGroup)
+     */
+    public void removeDecisionRuntimeIfCurrent(final RuleDefinitionModelGroup ruleDefinitionModelGroup) {
+        final String runtimeId = ruleDefinitionModelGroup.getRuntimeId();
+        final RuntimeRoutes routes = routesByRuntimeId.get(runtimeId);
+        if (routes != null && routes.ruleDefinitionModelGroup == ruleDefinitionModelGroup
+                && routesByRuntimeId.remove(runtimeId, routes)) {
+            unpublished(routes);
+        }
+    }
+
+    public DecisionEvaluateResponse evaluate(DecisionEvaluateRequest request) {
+        RuntimeRoutes routes;
+        do {
+            routes = routesByRuntimeId.get(request.getRuntimeId());
+            if (routes == null) {
+                return decisionEngineService.evaluate(request);
+            }
+            // routes that drained after the lookup have been replaced or removed, so look them up again
+        } while (!routes.enter());
+        try {
+            final CompiledDmn dmn = routes.dmnByName.get(request.getDmnName());
+            if (dmn == null) {
+                return decisionEngineService.evaluate(request);
+            }
+            return decisionEngineService.evaluate(DecisionEvaluateRequest.builder()
+                    .runtimeId(dmn.engineRuntimeId)
+                    .dmnName(dmn.engineDmnName)
+                    .input(request.getInput())
+                    .build());
+        } finally {
+            if (routes.exit()) {
+                drained(routes);
+            }
+        }
+    }
+
+    /**
+     * @return number of distinct dmn contents currently compiled
+     */
+    public int getCompiledDmnCount() {
+        return compiledDmnByEngineRuntimeId.size();
+    }
+
+    /**
+     * @return number of replaced or removed rule groups whose engine runtimes are kept until their in-flight
+     * evaluations complete
+     */
+    public int getDrainingRuntimeCount() {
+        return drainingRoutesCount.get();
+    }
+
+    /**
+     * @return number of engine runtimes compiled so far
+     */
+    public long getCompilationCount() {
+        return compilationCount.sum();
+    }
+
+    /**
+     * @return content hash by rule name, or null if the rules must be compiled together. Only rules whose content
+     * is not already known from the current or predecessor routes are parsed and hashed.
+     */
+    private static Map<String, String> hashSharedContent(final List<RuleDefinitionModel> rules,
+                                                         final RuntimeRoutes current,
+                                                         final RuntimeRoutes predecessor) {
+        final Map<String, String> contentHashes = new HashMap<>();
+        for (RuleDefinitionModel rule : rules) {
+            String contentHash = knownContentHash(rule, current);
+            if (contentHash == null) {
+                contentHash = knownContentHash(rule, predecessor);
+            }
+            if (contentHash == null) {
+                if (!isShareable(rule.getContent())) {
+                    return null;
+                }
+                contentHash = contentHash(rule.getContent());
+            }
+            contentHashes.put(rule.getRuleShortName(), contentHash);
+        }
+        return contentHashes;
+    }
+
+    /**
+     * @return hash of the rule's content if the routes hold a shared dmn of the same name and content, otherwise null
+     */
+    private static String knownContentHash(final RuleDefinitionModel rule, final RuntimeRoutes routes) {
+        if (routes == null) {
+            return null;
+        }
+        final String content = routes.contentByName.get(rule.getRuleShortName());
+        if (content == null || !(content == rule.getContent() || content.equals(rule.getContent()))) {
+            return null;
+        }
+        return routes.dmnByName.get(rule.getRuleShortName()).contentHash;
+    }
+
+    private static boolean isShareable(final String content) {
+        try {
+            return !DmnInputDataParser.declaresImports(content);
+        } catch (final IllegalArgumentException e) {
+            // let the engine report malformed content with the rest of its rule group
+            return false;
+        }
+    }
+
+    /**
+     * @return the compiled dmn of the rule's content with a reference held for the caller, compiling it if no other
+     * rule group holds it
+     */
+    private CompiledDmn acquire(final RuleDefinitionModel rule, final String contentHash,
+                                final RuleDefinitionModelGroup ruleDefinitionModelGroup) {
+        final String engineRuntimeId = SHARED_RUNTIME_ID_PREFIX + contentHash;
+        while (true) {
+            final CompiledDmn dmn = compiledDmnByEngineRuntimeId.computeIfAbsent(engineRuntimeId,
+                    id -> new CompiledDmn(contentHash, id, rule.getRuleShortName()));
+            synchronized (dmn) {
+                if (dmn.released) {
+                    // the last holder released it after we looked it up; a fresh entry is needed
+                    continue;
+                }
+                if (!dmn.compiled) {
+                    try {
+                        compile(dmn.engineRuntimeId, Collections.singletonMap(dmn.engineDmnName, rule.getContent()),
+                                Optional.empty(), Collections.singletonMap(CONTENT_HASH_ATTRIBUTE, contentHash),
+                                ruleDefinitionModelGroup);
+                    } catch (final RuntimeException e) {
+                        dmn.released = true;
+                        compiledDmnByEngineRuntimeId.remove(engineRuntimeId, dmn);
+                        throw e;
+                    }
+                    dmn.compiled = true;
+                }
+                dmn.references++;
+                return dmn;
+            }
+        }
+    }
+
+    private void release(final CompiledDmn dmn) {
+        synchronized (dmn) {
+            if (--dmn.references == 0) {
+                dmn.released = true;
+                compiledDmnByEngineRuntimeId.remove(dmn.engineRuntimeId, dmn);
+                decisionEngineService.removeDecisionRuntime(dmn.engineRuntimeId);
+            }
+        }
+    }
+
+    /**
+     * Releases the runtime id claimed by routes that were removed rather than replaced, and retires them.
+     */
+    private void unpublished(final RuntimeRoutes routes) {
+        final RuleDefinitionModelGroup group = routes.ruleDefinitionModelGroup;
+        runtimeIdToEntityIdMap.remove(group.getRuntimeId(), group.getIdentifier());
+        retire(routes);
+    }
+
+    /**
+     * Drops the hold of routes that are no longer published.
+     */
+    private void retire(final RuntimeRoutes routes) {
+        drainingRoutesCount.incrementAndGet();
+        if (routes.exit()) {
+            drained(routes);
+        }
+    }
+
+    /**
+     * Releases the runtimes of retired routes once the last evaluation on them has completed.
+     */
+    private void drained(final RuntimeRoutes routes) {
+        drainingRoutesCount.decrementAndGet();
+        if (routes.ownedRuntimeId == null) {
+            routes.dmnByName.values().forEach(this::release);
+        } else {
+            decisionEngineService.removeDecisionRuntime(routes.ownedRuntimeId);
+        }
+    }
+
+    /**
+     * @param decisionPolicyInfo       policy the engine attributes evaluations of the runtime to, if any
+     * @param supplementalAttributes   attributes the engine adds to the audit events of the runtime
+     * @param ruleDefinitionModelGroup rules that load failures are reported for
+     */
+    private void compile(final String engineRuntimeId, final Map<String, String> dmnContentMap,
+                         final Optional<DecisionPolicyInfo> decisionPolicyInfo,
+                         final Map<String, String> supplementalAttributes,
+                         final RuleDefinitionModelGroup ruleDefinitionModelGroup) {
         final List<RuleDefinitionModel> rules = ruleDefinitionModelGroup.getRuleDefinitionModelList();
-        rules.forEach(newRule -> dmnContentMap.put(newRule.getRuleShortName(), newRule.getContent()));
         final DecisionEngineRuntimeLoadResult loadResult;
+        compilationCount.increment();
         try {
             loadResult = decisionEngineService.load(
                     DecisionRuntimeLoadRequest.builder()
-                            .runtimeId(runtimeId)
+                            .runtimeId(engineRuntimeId)
                             .dmnContentMap(dmnContentMap)
-                            .decisionPolicyInfoOptional(createDecisionPolicyInfo(ruleDefinitionModelGroup))
-                            .supplementalAttributes(createSupplementalAttributes(ruleDefinitionModelGroup))
+                            .decisionPolicyInfoOptional(decisionPolicyInfo)
+                            .supplementalAttributes(supplementalAttributes)
                             .build());
         } catch (final RuntimeException e) {
-            throw new LoadRuleException(runtimeId, rules, e);
+            throw new LoadRuleException(ruleDefinitionModelGroup.getRuntimeId(), rules, e);
         }
         if (loadResult.getStatus() != DecisionEngineStatus.SUCCESS) {
-            throw new LoadRuleException(runtimeId, rules);
+            throw new LoadRuleException(ruleDefinitionModelGroup.getRuntimeId(), rules);
         }
     }
 
-    public void removeDecisionRuntime(final RuleDefinitionModelGroup ruleDefinitionModelGroup) {
-        decisionEngineService.removeDecisionRuntime(ruleDefinitionModelGroup.getRuntimeId());
+    static String contentHash(final String content) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
     }
 
-    public DecisionEvaluateResponse evaluate(DecisionEvaluateRequest request) {
-        return decisionEngineService.evaluate(request);
+    /**
+     * A dmn compiled into an engine runtime. Shared dmns have a content hash and are reference counted; dmns of a
+     * rule group compiled as a whole have none.
+     */
+    private static final class CompiledDmn {
+        final String contentHash;
+        final String engineRuntimeId;
+        final String engineDmnName;
+        int references;
+        boolean compiled;
+        boolean released;
+
+        CompiledDmn(final String contentHash, final String engineRuntimeId, final String engineDmnName) {
+            this.contentHash = contentHash;
+            this.engineRuntimeId = engineRuntimeId;
+            this.engineDmnName = engineDmnName;
+        }
+    }
+
+    /**
+     * Where each dmn of a runtime id is evaluated, and the content it was compiled from. Routes hold their runtimes
+     * while published and while evaluations are in flight on them.
+     */
+    private static final class RuntimeRoutes {
+        /**
+         * Rules the routes were loaded from.
+         */
+        final RuleDefinitionModelGroup ruleDefinitionModelGroup;
+        final Map<String, CompiledDmn> dmnByName;
+        /**
+         * Content by rule name of shared dmns; empty if the rule group was compiled as a whole.
+         */
+        final Map<String, String> contentByName;
+        /**
+         * Engine runtime id the rule group was compiled into as a whole, or null if its dmns are shared.
+         */
+        final String ownedRuntimeId;
+        /**
+         * One hold while published plus one per evaluation in flight; the runtimes are released when it reaches zero.
+         */
+        private final AtomicInteger holds = new AtomicInteger(1);
+
+        RuntimeRoutes(final RuleDefinitionModelGroup ruleDefinitionModelGroup, final Map<String, CompiledDmn> dmnByName,
+                      final Map<String, String> contentByName, final String ownedRuntimeId) {
+            this.ruleDefinitionModelGroup = ruleDefinitionModelGroup;
+            this.dmnByName = dmnByName;
+            this.contentByName = contentByName;
+            this.ownedRuntimeId = ownedRuntimeId;
+        }
+
+        /**
+         * @return false if the routes have already drained and must not be used
+         */
+        boolean enter() {
+            int current;
+            do {
+                current = holds.get();
+                if (current == 0) {
+                    return false;
+                }
+            } while (!holds.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        /**
+         * @return true if this was the last hold
+         */
+        boolean exit() {
+            return holds.decrementAndGet() == 0;
+        }
     }
 
     /**
@@ -69,13 +452,13 @@ public class DecisionPolicyRuntimeLoadService {
      * @param identifier the identifier
      */
     private void throwIfRuntimeIdConflictDetected(final String runtimeId, final String identifier) {
-        final String existingIdentifier = runtimeIdToEntityIdMap.get(runtimeId);
+        // claim the runtime id atomically so that concurrent loads cannot both pass the check
+        final String existingIdentifier = runtimeIdToEntityIdMap.putIfAbsent(runtimeId, identifier);
         if (existingIdentifier != null && !existingIdentifier.equals(identifier)) {
             throw new IllegalStateException(String.format("Conflicting decision engine runtime id, %s, detected "
                     + "between identifier %s and %s. The policy name and version must be unique among all policies. "
                     + "Please assign unique names to resolve.", runtimeId, existingIdentifier, identifier));
         }
-        runtimeIdToEntityIdMap.put(runtimeId, identifier);
     }
 
     private Map<String, String> createSupplementalAttributes(final RuleDefinitionModelGroup ruleDefinitionModelGroup) {
@@ -0,0 +1,74 @@
+package com.capitalone.identity.platform.dmn;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads the declared inputs and imports of a DMN model without loading it into the decision engine.
+ */
+public class DmnInputDataParser {
+
+    private static final String DMN_INPUT_DATA = "inputData";
+
+    private static final String DMN_IMPORT = "import";
+
+    /**
+     * @param dmnContent DMN model xml
+     * @return the {@code name} of every {@code inputData} element in document order
+     * @throws IllegalArgumentException if the content is not well-formed xml
+     */
+    public static List<String> parseInputNames(final String dmnContent) {
+        final NodeList inputs = parse(dmnContent).getElementsByTagNameNS("*", DMN_INPUT_DATA);
+        final List<String> names = new ArrayList<>(inputs.getLength());
+        for (int i = 0; i < inputs.getLength(); i++) {
+            final String name = ((Element) inputs.item(i)).getAttribute("name");
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * @param dmnContent DMN model xml
+     * @return true if the model imports other models, so that it can only be compiled together with them
+     * @throws IllegalArgumentException if the content is not well-formed xml
+     */
+    public static boolean declaresImports(final String dmnContent) {
+        return parse(dmnContent).getElementsByTagNameNS("*", DMN_IMPORT).getLength() > 0;
+    }
+
+    private static Document parse(final String dmnContent) {
+        try {
+            final DocumentBuilder builder = newDocumentBuilderFactory().newDocumentBuilder();
+            return builder.parse(new InputSource(new StringReader(dmnContent.trim())));
+        } catch (final Exception e) {
+            throw new IllegalArgumentException("Failed to parse dmn content.", e);
+        }
+    }
+
+    private static DocumentBuilderFactory newDocumentBuilderFactory() throws Exception {
+        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        // dmn content comes from the config store; never resolve external entities
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        factory.setXIncludeAware(false);
+        factory.setExpandEntityReferences(false);
+        return factory;
+    }
+
+    private DmnInputDataParser() {
+    }
+
+}
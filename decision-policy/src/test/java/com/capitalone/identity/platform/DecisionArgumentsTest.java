@@ -0,0 +1,48 @@
+package com.capitalone.identity.platform;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecisionArgumentsTest {
+
+    @Test
+    void overlay() {
+        Map<String, Serializable> body = new HashMap<>();
+        body.put("param-A", "a");
+        body.put("param-B", 2);
+        Map<String, Object> template = Collections.singletonMap("config.param-A", "Z");
+
+        DecisionArguments arguments = new DecisionArguments(body, template);
+
+        Map<String, Object> expected = new HashMap<>(body);
+        expected.putAll(template);
+        assertEquals(expected, arguments);
+        assertEquals(expected, new HashMap<>(arguments));
+        assertEquals(3, arguments.size());
+        assertEquals("a", arguments.get("param-A"));
+        assertEquals("Z", arguments.get("config.param-A"));
+        assertTrue(arguments.containsKey("config.param-A"));
+        assertNull(arguments.get("config.param-B"));
+        assertThrows(UnsupportedOperationException.class, () -> arguments.put("param-C", "c"));
+        assertThrows(UnsupportedOperationException.class, () -> arguments.remove("param-A"));
+
+        // the view is not a copy
+        body.put("param-C", "c");
+        assertEquals("c", arguments.get("param-C"));
+        assertEquals(4, arguments.size());
+    }
+
+    @Test
+    void overlay_empty() {
+        DecisionArguments arguments = new DecisionArguments(Collections.emptyMap(), Collections.emptyMap());
+        assertTrue(arguments.isEmpty());
+        assertFalse(arguments.entrySet().iterator().hasNext());
+    }
+
+}
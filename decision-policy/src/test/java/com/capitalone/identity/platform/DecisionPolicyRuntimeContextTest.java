@@ -1,23 +1,44 @@
 package com.capitalone.identity.platform;
 
+import com.capitalone.identity.identitybuilder.audit.models.HostContext;
 import com.capitalone.identity.identitybuilder.configmanagement.MatchingStrategies;
+import com.capitalone.identity.identitybuilder.decisionengine.service.api.DecisionEngineService;
+import com.capitalone.identity.identitybuilder.decisionengine.service.api.DecisionEvaluateRequest;
+import com.capitalone.identity.identitybuilder.decisionengine.service.api.DecisionRuntimeLoadRequest;
 import com.capitalone.identity.identitybuilder.model.ConfigStoreItem;
 import com.capitalone.identity.identitybuilder.model.Entity;
+import com.capitalone.identity.identitybuilder.model.EntityActivationStatus;
 import com.capitalone.identity.identitybuilder.model.EntityInfo;
+import com.capitalone.identity.identitybuilder.model.LogicalVersion;
 import com.capitalone.identity.identitybuilder.model.parsing.PolicyDefinition;
 import com.capitalone.identity.platform.dmn.DecisionPolicyRuntimeLoadService;
+import com.capitalone.identity.platform.dmn.RuleDefinitionModelGroup;
+import com.capitalone.identity.platform.dmn.RuleDefinitionModelGroupFactory;
 import com.capitalone.identity.platform.loading.TestContent;
+import com.capitalone.identity.platform.metrics.PolicyInvocationStage;
+import com.capitalone.identity.platform.metrics.PolicyLatencyHistograms;
 import com.capitalone.identity.platform.runtime.PolicyError;
 import com.capitalone.identity.platform.runtime.PolicyErrorInfo;
 import com.capitalone.identity.platform.runtime.PolicyResult;
 import com.capitalone.identity.platform.runtime.PolicyResultStatus;
+import com.capitalone.identity.platform.versioning.PolicyVersionCatalog;
+import com.capitalone.identity.platform.versioning.PolicyVersionService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import java.io.Serializable;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -63,6 +84,25 @@ class DecisionPolicyRuntimeContextTest {
         );
     }
 
+    Entity.Policy newDecisionPolicy(String name, int major, int minor, int patch, Map<String, String> dmnContent) {
+        String location = String.format("%s/%s.%s/%s", name, major, minor, patch);
+        Set<ConfigStoreItem> items = Stream.concat(
+                dmnContent.entrySet().stream().map(entry ->
+                        new ConfigStoreItem(location + "/rules/" + entry.getKey(), entry.getValue())),
+                Stream.of(
+                        new ConfigStoreItem(location + "/config/defaults.json", TestContent.SIMPLE_CONFIG_DEFAULTS),
+                        new ConfigStoreItem(location + "/config/schema.json", TestContent.SIMPLE_CONFIG_SCHEMA),
+                        new ConfigStoreItem(location + "/config/A.A.A.A.json", TestContent.SIMPLE_CONFIG_USECASE_A),
+                        new ConfigStoreItem(location + "/policy-metadata.json", TestContent.POLICY_METADATA_DECISION_AVAILABLE))
+        ).collect(Collectors.toSet());
+        return new Entity.Policy(
+                new EntityInfo.Policy(
+                        new PolicyDefinition(location, name, name, major, minor, patch),
+                        items.stream().map(item -> item.info).collect(Collectors.toSet())),
+                items
+        );
+    }
+
     @Test
     void load() {
         DecisionPolicyRuntimeContext context = new DecisionPolicyRuntimeContext();
@@ -87,6 +127,164 @@ class DecisionPolicyRuntimeContextTest {
 
     }
 
+    @Test
+    void load_sharesIdenticalDmnsWithinPolicy() {
+        DecisionPolicyRuntimeContext context = new DecisionPolicyRuntimeContext(MatchingStrategies.MATCH_ALL_NON_NULL);
+        DecisionPolicyRuntimeLoadService loadService = context.decisionPolicyRuntimeLoadService;
+        Map<String, String> dmns = new HashMap<>();
+        dmns.put("simple.dmn", TestContent.SIMPLE_DMN);
+        dmns.put("copy.dmn", TestContent.SIMPLE_DMN);
+        Entity.Policy policy = newDecisionPolicy("a/b/c", 1, 0, 0, dmns);
+        context.load(policy);
+        assertEquals(1, loadService.getCompilationCount());
+        assertEquals(1, loadService.getCompiledDmnCount());
+
+        HashMap<String, Serializable> body = new HashMap<String, Serializable>() {{
+            put("param-A", "stringValue");
+        }};
+        DecisionPolicyResponse expectResponse = new DecisionPolicyResponse(new HashMap<String, Serializable>() {{
+            put("Decision-1", "Decision-1 Output (config.param-A=A, param-A=stringValue)");
+            put("Decision-2", "Decision-2 Output (param-A=stringValue)");
+        }});
+        assertDecisionSuccess(expectResponse,
+                context.invoke(policy.getInfo(), new DecisionPolicyRequest(body, "A.A.A.A", "simple.dmn")));
+        assertDecisionSuccess(expectResponse,
+                context.invoke(policy.getInfo(), new DecisionPolicyRequest(body, "A.A.A.A", "copy.dmn")));
+
+        context.unload(policy.getInfo());
+        assertEquals(0, loadService.getCompiledDmnCount());
+
+    }
+
+    @Test
+    void load_sharesIdenticalDmnsAcrossPolicies() {
+        DecisionEngineService engine = Mockito.spy(DecisionEngineService.createDefaultConfiguration(
+                HostContext.builder()
+                        .businessApplication("ba_test")
+                        .applicationComponent("appComponent_test")
+                        .clientIdentifier("clientIdentifier_test")
+                        .hostName("hostName_test")
+                        .containerId("containerId_localTest")
+                        .build()));
+        DecisionPolicyRuntimeLoadService loadService = new DecisionPolicyRuntimeLoadService(engine);
+        DecisionPolicyRuntimeContext context = new DecisionPolicyRuntimeContext(loadService);
+        Entity.Policy policyA = newSimpleDecisionPolicy("a/b/c", 1, 0, 0);
+        Entity.Policy policyB = newSimpleDecisionPolicy("a/b/d", 1, 0, 0);
+        context.load(policyA);
+        context.load(policyB);
+        assertEquals(1, loadService.getCompilationCount());
+        assertEquals(1, loadService.getCompiledDmnCount());
+
+        // a shared runtime is attributed to its content rather than to the policy that compiled it first
+        ArgumentCaptor<DecisionRuntimeLoadRequest> load = ArgumentCaptor.forClass(DecisionRuntimeLoadRequest.class);
+        verify(engine).load(load.capture());
+        assertEquals(Collections.singleton("contentHash"), load.getValue().getSupplementalAttributes().keySet());
+
+        HashMap<String, Serializable> body = new HashMap<String, Serializable>() {{
+            put("param-A", "stringValue");
+        }};
+        DecisionPolicyRequest request = new DecisionPolicyRequest(body, "A.A.A.A", "simple.dmn");
+        for (Entity.Policy policy : Arrays.asList(policyA, policyB)) {
+            clearInvocations(engine);
+            assertDecisionSuccess(context.invoke(policy.getInfo(), request));
+            ArgumentCaptor<DecisionEvaluateRequest> evaluation =
+                    ArgumentCaptor.forClass(DecisionEvaluateRequest.class);
+            verify(engine).evaluate(evaluation.capture());
+            assertEquals(load.getValue().getRuntimeId(), evaluation.getValue().getRuntimeId());
+        }
+
+        context.unload(policyA.getInfo());
+        assertEquals(1, loadService.getCompiledDmnCount());
+        assertDecisionSuccess(context.invoke(policyB.getInfo(), request));
+        context.unload(policyB.getInfo());
+        assertEquals(0, loadService.getCompiledDmnCount());
+
+    }
+
+    @Test
+    void removeDecisionRuntime_releasesRuntimeId() {
+        DecisionPolicyRuntimeLoadService loadService =
+                new DecisionPolicyRuntimeContext().decisionPolicyRuntimeLoadService;
+        RuleDefinitionModelGroupFactory factory = new RuleDefinitionModelGroupFactory();
+        Map<String, String> rules = Collections.singletonMap("rules/simple.dmn", TestContent.SIMPLE_DMN);
+        // different identifiers that sanitize to the same runtime id
+        RuleDefinitionModelGroup first = factory.create("a//b/c/1.0.0", rules);
+        RuleDefinitionModelGroup second = factory.create("a/b/c/1.0.0", rules);
+        assertEquals(first.getRuntimeId(), second.getRuntimeId());
+
+        loadService.loadRulesIntoDecisionRuntime(first);
+        assertThrows(IllegalStateException.class, () -> loadService.loadRulesIntoDecisionRuntime(second));
+        loadService.removeDecisionRuntime(first);
+        assertDoesNotThrow(() -> loadService.loadRulesIntoDecisionRuntime(second));
+
+        loadService.removeDecisionRuntimeIfCurrent(first);
+        assertThrows(IllegalStateException.class, () -> loadService.loadRulesIntoDecisionRuntime(first));
+        loadService.removeDecisionRuntimeIfCurrent(second);
+        assertDoesNotThrow(() -> loadService.loadRulesIntoDecisionRuntime(first));
+    }
+
+    @Test
+    void load_reload_compilesChangedDmnsOnly() {
+        DecisionPolicyRuntimeContext context = new DecisionPolicyRuntimeContext(MatchingStrategies.MATCH_ALL_NON_NULL);
+        DecisionPolicyRuntimeLoadService loadService = context.decisionPolicyRuntimeLoadService;
+        String changedDmn = TestContent.SIMPLE_DMN.replace("Decision-2 Output", "Decision-2 Changed Output");
+        Map<String, String> dmns = new HashMap<>();
+        dmns.put("simple.dmn", TestContent.SIMPLE_DMN);
+        dmns.put("blank.dmn", TestContent.DMN_BLANK);
+        context.load(newDecisionPolicy("a/b/c", 1, 0, 0, dmns));
+        assertEquals(2, loadService.getCompilationCount());
+
+        // reloaded under the same patch version
+        dmns.put("blank.dmn", changedDmn);
+        Entity.Policy update = newDecisionPolicy("a/b/c", 1, 0, 0, dmns);
+        context.load(update);
+        assertEquals(3, loadService.getCompilationCount());
+        assertEquals(2, loadService.getCompiledDmnCount());
+
+        HashMap<String, Serializable> body = new HashMap<String, Serializable>() {{
+            put("param-A", "stringValue");
+        }};
+        assertDecisionSuccess(new DecisionPolicyResponse(new HashMap<String, Serializable>() {{
+            put("Decision-1", "Decision-1 Output (config.param-A=A, param-A=stringValue)");
+            put("Decision-2", "Decision-2 Output (param-A=stringValue)");
+        }}), context.invoke(update.getInfo(), new DecisionPolicyRequest(body, "A.A.A.A", "simple.dmn")));
+        assertDecisionSuccess(new DecisionPolicyResponse(new HashMap<String, Serializable>() {{
+            put("Decision-1", "Decision-1 Output (config.param-A=A, param-A=stringValue)");
+            put("Decision-2", "Decision-2 Changed Output (param-A=stringValue)");
+        }}), context.invoke(update.getInfo(), new DecisionPolicyRequest(body, "A.A.A.A", "blank.dmn")));
+    }
+
+    @Test
+    void load_patchVersionBump_compilesChangedDmnsOnly() {
+        DecisionPolicyRuntimeContext context = new DecisionPolicyRuntimeContext(MatchingStrategies.MATCH_ALL_NON_NULL);
+        DecisionPolicyRuntimeLoadService loadService = context.decisionPolicyRuntimeLoadService;
+        String changedDmn = TestContent.SIMPLE_DMN.replace("Decision-2 Output", "Decision-2 Changed Output");
+        Map<String, String> dmns = new HashMap<>();
+        dmns.put("simple.dmn", TestContent.SIMPLE_DMN);
+        dmns.put("blank.dmn", TestContent.DMN_BLANK);
+        context.load(newDecisionPolicy("a/b/c", 1, 0, 1, dmns));
+        assertEquals(2, loadService.getCompilationCount());
+
+        // the unchanged dmn is carried over from the previous patch version
+        dmns.put("blank.dmn", changedDmn);
+        Entity.Policy update = newDecisionPolicy("a/b/c", 1, 0, 2, dmns);
+        context.load(update);
+        assertEquals(3, loadService.getCompilationCount());
+        assertEquals(2, loadService.getCompiledDmnCount());
+
+        HashMap<String, Serializable> body = new HashMap<String, Serializable>() {{
+            put("param-A", "stringValue");
+        }};
+        assertDecisionSuccess(new DecisionPolicyResponse(new HashMap<String, Serializable>() {{
+            put("Decision-1", "Decision-1 Output (config.param-A=A, param-A=stringValue)");
+            put("Decision-2", "Decision-2 Output (param-A=stringValue)");
+        }}), context.invoke(update.getInfo(), new DecisionPolicyRequest(body, "A.A.A.A", "simple.dmn")));
+        assertDecisionSuccess(new DecisionPolicyResponse(new HashMap<String, Serializable>() {{
+            put("Decision-1", "Decision-1 Output (config.param-A=A, param-A=stringValue)");
+            put("Decision-2", "Decision-2 Changed Output (param-A=stringValue)");
+        }}), context.invoke(update.getInfo(), new DecisionPolicyRequest(body, "A.A.A.A", "blank.dmn")));
+    }
+
     @Test
     void loadAndInvoke_patch_change() {
         DecisionPolicyRuntimeContext context = Mockito.spy(new DecisionPolicyRuntimeContext());
@@ -203,6 +401,9 @@ class DecisionPolicyRuntimeContextTest {
         DecisionPolicyRequest request = new DecisionPolicyRequest(new HashMap<>(), "XYZ", "simple.dmn");
         PolicyResult<DecisionPolicyResponse> result = context.invoke(policy.getInfo(), request);
         assertDecisionSuccess(result);
+        // callers may add to the result
+        Objects.requireNonNull(result.getResult()).getContent().put("added", "value");
+        assertEquals("value", result.getResult().getContent().get("added"));
 
     }
 
@@ -280,6 +481,8 @@ class DecisionPolicyRuntimeContextTest {
         PolicyErrorInfo expectedError = new PolicyErrorInfo(PolicyError.POLICY_EXECUTION_ERROR,
                 "Decision invocation error.");
         assertDecisionFailure(expectedError, result);
+        // constant failures are shared rather than rebuilt per request
+        assertSame(result, context.invoke(policy.getInfo(), request));
 
     }
 
@@ -332,6 +535,595 @@ class DecisionPolicyRuntimeContextTest {
 
     }
 
+    @Test
+    void invokeAll() {
+        DecisionPolicyRuntimeContext context = new DecisionPolicyRuntimeContext(MatchingStrategies.MATCH_EXACT_ONLY);
+        Entity.Policy policy = newBlankDecisionPolicy("a/b/c", 1, 0, 0);
+        context.load(policy);
+
+        List<PolicyResult<DecisionPolicyResponse>> results = context.invokeAll(policy.getInfo(), Arrays.asList(
+                new DecisionPolicyRequest(new HashMap<>(), "A.A.A.A", "simple.dmn"),
+                new DecisionPolicyRequest(new HashMap<>(), "W.X.Y.Z", "simple.dmn"),
+                new DecisionPolicyRequest(new HashMap<>(), "A.A.A.A", "unknownDMN.dmn"),
+                new DecisionPolicyRequest(new HashMap<>(), "A.A.A.A", "simple.dmn")));
+
+        assertEquals(4, results.size());
+        assertDecisionSuccess(results.get(0));
+        assertDecisionFailure(new PolicyErrorInfo(PolicyError.BAD_REQUEST_MISSING_CONFIG,
+                "Could not find a configuration that matches supplied business event 'W.X.Y.Z'"), results.get(1));
+        assertDecisionFailure(new PolicyErrorInfo(PolicyError.BAD_REQUEST_MISSING_DMN_FILE,
+                "Could not find dmn with name 'unknownDMN.dmn' in requested policy."), results.get(2));
+        assertDecisionSuccess(results.get(3));
+
+    }
+
+    @Test
+    void invokeAll_error_missingPolicy() {
+        DecisionPolicyRuntimeContext context = new DecisionPolicyRuntimeContext();
+        EntityInfo.Policy info = newBlankDecisionPolicy("a/b/c", 1, 0, 0).getInfo();
+        List<DecisionPolicyRequest> requests = Collections.singletonList(
+                new DecisionPolicyRequest(new HashMap<>(), "A.B.C.D", "simple.dmn"));
+
+        assertThrows(IllegalArgumentException.class, () -> context.invokeAll(info, requests));
+
+    }
+
+    @Test
+    void invoke_recordsLatency() {
+        PolicyLatencyHistograms histograms = new PolicyLatencyHistograms();
+        DecisionPolicyRuntimeContext context = new DecisionPolicyRuntimeContext(
+                new DecisionPolicyRuntimeContext().decisionPolicyRuntimeLoadService,
+                MatchingStrategies.MATCH_ALL_NON_NULL, null,
+                new DecisionPolicyRuntimeContext.Options().latencyRecorder(histograms));
+        Entity.Policy policy = newBlankDecisionPolicy("a/b/c", 1, 0, 0);
+        context.load(policy);
+
+        DecisionPolicyRequest request = new DecisionPolicyRequest(new HashMap<>(), "A.A.A.A", "simple.dmn");
+        assertDecisionSuccess(context.invoke(policy.getInfo(), request));
+        assertDecisionSuccess(context.invoke(policy.getInfo(), request));
+
+        for (PolicyInvocationStage stage : Arrays.asList(PolicyInvocationStage.ARGUMENT_PREPARATION,
+                PolicyInvocationStage.ENGINE_EVALUATION, PolicyInvocationStage.RESULT_CONVERSION)) {
+            assertEquals(2, histograms.getHistogram(stage, "a/b/c", "1.0.0", "simple.dmn").getCount());
+        }
+        assertNull(histograms.getHistogram(PolicyInvocationStage.VERSION_RESOLUTION, "a/b/c", "1.0.0", "simple.dmn"));
+
+        context.unload(policy.getInfo());
+        assertTrue(histograms.snapshot().isEmpty());
+    }
+
+    @Test
+    void invoke_resultCache() {
+        DecisionPolicyRuntimeLoadService loadService =
+                Mockito.spy(new DecisionPolicyRuntimeContext().decisionPolicyRuntimeLoadService);
+        DecisionResultCache cache = new DecisionResultCache(100, Duration.ofMinutes(1));
+        DecisionPolicyRuntimeContext context = new DecisionPolicyRuntimeContext(loadService,
+                MatchingStrategies.MATCH_ALL_NON_NULL, null,
+                new DecisionPolicyRuntimeContext.Options().resultCache(cache));
+        Entity.Policy policyA = newSimpleDecisionPolicy("a/b/c", 1, 0, 0);
+        context.load(policyA);
+
+        HashMap<String, Serializable> body = new HashMap<String, Serializable>() {{
+            put("param-A", "stringValue");
+        }};
+        DecisionPolicyRequest request = new DecisionPolicyRequest(body, "A.A.A.A", "simple.dmn");
+        PolicyResult<DecisionPolicyResponse> first = context.invoke(policyA.getInfo(), request);
+        PolicyResult<DecisionPolicyResponse> second = context.invoke(policyA.getInfo(), request);
+        assertEquals(PolicyResultStatus.SUCCESS, first.getStatus());
+        assertEquals(first.getResult(), second.getResult());
+        verify(loadService, times(1)).evaluate(any());
+        assertEquals(1, cache.getStatistics().getHitCount());
+
+        // replacing the patch content drops its cached results
+        Entity.Policy policyB = newBlankDecisionPolicy("a/b/c", 1, 0, 0);
+        context.load(policyB);
+        assertEquals(0, cache.getStatistics().getSize());
+        context.invoke(policyB.getInfo(), request);
+        verify(loadService, times(2)).evaluate(any());
+
+        context.unload(policyB.getInfo());
+        assertEquals(0, cache.getStatistics().getSize());
+
+    }
+
+    @Test
+    void invoke_resultCache_reloadDuringEvaluation() {
+        DecisionPolicyRuntimeLoadService loadService =
+                Mockito.spy(new DecisionPolicyRuntimeContext().decisionPolicyRuntimeLoadService);
+        DecisionResultCache cache = new DecisionResultCache(100, Duration.ofMinutes(1));
+        DecisionPolicyRuntimeContext context = new DecisionPolicyRuntimeContext(loadService,
+                MatchingStrategies.MATCH_ALL_NON_NULL, null,
+                new DecisionPolicyRuntimeContext.Options().resultCache(cache));
+        Entity.Policy policyA = newSimpleDecisionPolicy("a/b/c", 1, 0, 0);
+        Entity.Policy policyB = newBlankDecisionPolicy("a/b/c", 1, 0, 0);
+        context.load(policyA);
+
+        // the same patch version is reloaded after the engine evaluated, before the result is cached
+        AtomicBoolean reloaded = new AtomicBoolean();
+        doAnswer(invocation -> {
+            Object response = invocation.callRealMethod();
+            if (reloaded.compareAndSet(false, true)) {
+                context.load(policyB);
+            }
+            return response;
+        }).when(loadService).evaluate(any());
+
+        HashMap<String, Serializable> body = new HashMap<String, Serializable>() {{
+            put("param-A", "stringValue");
+        }};
+        DecisionPolicyRequest request = new DecisionPolicyRequest(body, "A.A.A.A", "simple.dmn");
+        assertEquals(PolicyResultStatus.SUCCESS, context.invoke(policyA.getInfo(), request).getStatus());
+        assertTrue(reloaded.get());
+
+        context.invoke(policyB.getInfo(), request);
+        verify(loadService, times(2)).evaluate(any());
+        assertEquals(0, cache.getStatistics().getHitCount());
+    }
+
+    @Test
+    void invoke_concurrentWithReload() throws Exception {
+        DecisionPolicyRuntimeContext context = new DecisionPolicyRuntimeContext(MatchingStrategies.MATCH_ALL_NON_NULL);
+        Entity.Policy simplePolicy = newSimpleDecisionPolicy("a/b/c", 1, 0, 0);
+        Entity.Policy blankPolicy = newBlankDecisionPolicy("a/b/c", 1, 0, 0);
+        context.load(simplePolicy);
+
+        HashMap<String, Serializable> body = new HashMap<String, Serializable>() {{
+            put("param-A", "stringValue");
+        }};
+        DecisionPolicyRequest request = new DecisionPolicyRequest(body, "A.A.A.A", "simple.dmn");
+        DecisionPolicyResponse simpleResponse = new DecisionPolicyResponse(new HashMap<String, Serializable>() {{
+            put("Decision-1", "Decision-1 Output (config.param-A=A, param-A=stringValue)");
+            put("Decision-2", "Decision-2 Output (param-A=stringValue)");
+        }});
+        DecisionPolicyResponse blankResponse = new DecisionPolicyResponse(new HashMap<>());
+
+        int readerCount = 4;
+        ExecutorService readers = Executors.newFixedThreadPool(readerCount);
+        AtomicBoolean reloading = new AtomicBoolean(true);
+        try {
+            List<Future<Integer>> invocations = new ArrayList<>();
+            for (int i = 0; i < readerCount; i++) {
+                invocations.add(readers.submit(() -> {
+                    int count = 0;
+                    do {
+                        PolicyResult<DecisionPolicyResponse> result = context.invoke(simplePolicy.getInfo(), request);
+                        assertEquals(PolicyResultStatus.SUCCESS, result.getStatus(),
+                                () -> Objects.requireNonNull(result.getErrorInfo()).toString());
+                        DecisionPolicyResponse response = result.getResult();
+                        assertTrue(simpleResponse.equals(response) || blankResponse.equals(response),
+                                () -> String.valueOf(response));
+                        count++;
+                    } while (reloading.get());
+                    return count;
+                }));
+            }
+            for (int i = 0; i < 100; i++) {
+                context.load(i % 2 == 0 ? blankPolicy : simplePolicy);
+            }
+            reloading.set(false);
+            for (Future<Integer> invocation : invocations) {
+                assertTrue(invocation.get(30, TimeUnit.SECONDS) > 0);
+            }
+        } finally {
+            readers.shutdownNow();
+        }
+        assertEquals(Collections.singletonList(simplePolicy.getInfo()), context.getLoadedEntities());
+
+    }
+
+    @Test
+    void load_patchUpdate_drainsInFlightInvocations() throws Exception {
+        DecisionPolicyRuntimeContext context = new DecisionPolicyRuntimeContext(MatchingStrategies.MATCH_ALL_NON_NULL);
+        DecisionPolicyRuntimeLoadService loadService = context.decisionPolicyRuntimeLoadService;
+        Entity.Policy policy1 = newSimpleDecisionPolicy("a/b/c", 1, 0, 1);
+        Entity.Policy policy2 = newBlankDecisionPolicy("a/b/c", 1, 0, 2);
+        context.load(policy1);
+
+        // the engine reads the body while evaluating, which holds the invocation in flight until released
+        CountDownLatch evaluating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        HashMap<String, Serializable> body = new HashMap<String, Serializable>() {
+            @Override
+            public Serializable get(Object key) {
+                await();
+                return super.get(key);
+            }
+
+            @Override
+            public Set<Entry<String, Serializable>> entrySet() {
+                await();
+                return super.entrySet();
+            }
+
+            private void await() {
+                evaluating.countDown();
+                try {
+                    assertTrue(release.await(30, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        body.put("param-A", "stringValue");
+        DecisionPolicyRequest request = new DecisionPolicyRequest(body, "A.A.A.A", "simple.dmn");
+
+        ExecutorService invoker = Executors.newSingleThreadExecutor();
+        try {
+            Future<PolicyResult<DecisionPolicyResponse>> inFlight =
+                    invoker.submit(() -> context.invoke(policy1.getInfo(), request));
+            assertTrue(evaluating.await(30, TimeUnit.SECONDS));
+
+            context.load(policy2);
+            assertEquals(Collections.singletonList(policy2.getInfo()), context.getLoadedEntities());
+            // the retired patch keeps its runtime until its invocation exits
+            assertEquals(0, loadService.getDrainingRuntimeCount());
+            assertEquals(2, loadService.getCompiledDmnCount());
+
+            release.countDown();
+            assertDecisionSuccess(new DecisionPolicyResponse(new HashMap<String, Serializable>() {{
+                put("Decision-1", "Decision-1 Output (config.param-A=A, param-A=stringValue)");
+                put("Decision-2", "Decision-2 Output (param-A=stringValue)");
+            }}), inFlight.get(30, TimeUnit.SECONDS));
+        } finally {
+            invoker.shutdownNow();
+        }
+        assertEquals(0, loadService.getDrainingRuntimeCount());
+        assertEquals(1, loadService.getCompiledDmnCount());
+
+    }
+
+    @Test
+    void invoke_resolvedVersionDuringPatchUpdate() throws Exception {
+        PolicyVersionService versionService = new PolicyVersionService();
+        DecisionPolicyRuntimeContext context = new DecisionPolicyRuntimeContext(
+                new DecisionPolicyRuntimeContext().decisionPolicyRuntimeLoadService,
+                MatchingStrategies.MATCH_ALL_NON_NULL, null,
+                new DecisionPolicyRuntimeContext.Options().versionService(versionService));
+        DecisionPolicyRuntimeLoadService loadService = context.decisionPolicyRuntimeLoadService;
+        Entity.Policy policy1 = newSimpleDecisionPolicy("a/b/c", 1, 0, 1);
+        Entity.Policy policy2 = newBlankDecisionPolicy("a/b/c", 1, 0, 2);
+        context.load(policy1);
+        versionService.set(policy1.getInfo(), EntityActivationStatus.ACTIVE);
+
+        HashMap<String, Serializable> body = new HashMap<String, Serializable>() {{
+            put("param-A", "stringValue");
+        }};
+        DecisionPolicyRequest request = new DecisionPolicyRequest(body, "A.A.A.A", "simple.dmn");
+
+        int readerCount = 4;
+        ExecutorService readers = Executors.newFixedThreadPool(readerCount);
+        AtomicBoolean updating = new AtomicBoolean(true);
+        AtomicInteger invocationCount = new AtomicInteger();
+        AtomicInteger failureCount = new AtomicInteger();
+        try {
+            List<Future<?>> invocations = new ArrayList<>();
+            for (int i = 0; i < readerCount; i++) {
+                invocations.add(readers.submit(() -> {
+                    do {
+                        // callers resolve the version, then invoke it, with the patch update racing in between
+                        PolicyVersionCatalog catalog = versionService.getCatalog();
+                        LogicalVersion version = catalog.getPolicyVersion("a/b/c", "1.0");
+                        boolean success;
+                        try {
+                            success = context.invoke(version, request).getStatus() == PolicyResultStatus.SUCCESS;
+                        } catch (RuntimeException e) {
+                            success = false;
+                        }
+                        // a version resolved from a catalog that has since switched may already be unloaded
+                        if (!success && versionService.getCatalog().getGeneration() == catalog.getGeneration()) {
+                            failureCount.incrementAndGet();
+                        }
+                        invocationCount.incrementAndGet();
+                    } while (updating.get());
+                }));
+            }
+            awaitInvocations(invocationCount, 100);
+
+            context.load(policy2);
+            // the old patch keeps serving until the catalog resolves the new one
+            assertEquals(2, loadService.getCompiledDmnCount());
+            awaitInvocations(invocationCount, 100);
+
+            versionService.set(policy2.getInfo(), EntityActivationStatus.ACTIVE);
+            awaitInvocations(invocationCount, 100);
+            updating.set(false);
+            for (Future<?> invocation : invocations) {
+                invocation.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            readers.shutdownNow();
+        }
+        assertEquals(0, failureCount.get());
+        // unloaded once the catalog switched, and its runtime removed once its invocations exited
+        assertEquals(1, loadService.getCompiledDmnCount());
+        assertEquals(0, loadService.getDrainingRuntimeCount());
+        assertThrows(IllegalArgumentException.class, () -> context.invoke(policy1.getInfo(), request));
+    }
+
+    @Test
+    void load_patchUpdate_keepsReplacedVersionUntilCatalogSwitchesAndDrains() throws Exception {
+        PolicyVersionService versionService = new PolicyVersionService();
+        DecisionPolicyRuntimeContext context = new DecisionPolicyRuntimeContext(
+                new DecisionPolicyRuntimeContext().decisionPolicyRuntimeLoadService,
+                MatchingStrategies.MATCH_ALL_NON_NULL, null,
+                new DecisionPolicyRuntimeContext.Options().versionService(versionService));
+        DecisionPolicyRuntimeLoadService loadService = context.decisionPolicyRuntimeLoadService;
+        Entity.Policy policy1 = newSimpleDecisionPolicy("a/b/c", 1, 0, 1);
+        Entity.Policy policy2 = newBlankDecisionPolicy("a/b/c", 1, 0, 2);
+        context.load(policy1);
+        versionService.set(policy1.getInfo(), EntityActivationStatus.ACTIVE);
+
+        CountDownLatch evaluating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        HashMap<String, Serializable> blockingBody = new HashMap<String, Serializable>() {
+            @Override
+            public Serializable get(Object key) {
+                await();
+                return super.get(key);
+            }
+
+            @Override
+            public Set<Entry<String, Serializable>> entrySet() {
+                await();
+                return super.entrySet();
+            }
+
+            private void await() {
+                evaluating.countDown();
+                try {
+                    assertTrue(release.await(30, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        blockingBody.put("param-A", "stringValue");
+        HashMap<String, Serializable> body = new HashMap<String, Serializable>() {{
+            put("param-A", "stringValue");
+        }};
+        DecisionPolicyRequest request = new DecisionPolicyRequest(body, "A.A.A.A", "simple.dmn");
+        DecisionPolicyResponse policy1Response = new DecisionPolicyResponse(new HashMap<String, Serializable>() {{
+            put("Decision-1", "Decision-1 Output (config.param-A=A, param-A=stringValue)");
+            put("Decision-2", "Decision-2 Output (param-A=stringValue)");
+        }});
+
+        ExecutorService invoker = Executors.newSingleThreadExecutor();
+        try {
+            Future<PolicyResult<DecisionPolicyResponse>> inFlight = invoker.submit(() -> context.invoke(
+                    policy1.getInfo(), new DecisionPolicyRequest(blockingBody, "A.A.A.A", "simple.dmn")));
+            assertTrue(evaluating.await(30, TimeUnit.SECONDS));
+
+            // the catalog still resolves the replaced version, so it keeps serving new invocations
+            context.load(policy2);
+            assertEquals(Collections.singletonList(policy2.getInfo()), context.getLoadedEntities());
+            assertDecisionSuccess(policy1Response, context.invoke(policy1.getInfo(), request));
+
+            // unloaded once the catalog switches, while its invocation in flight keeps the runtime
+            versionService.set(policy2.getInfo(), EntityActivationStatus.ACTIVE);
+            assertThrows(IllegalArgumentException.class, () -> context.invoke(policy1.getInfo(), request));
+            assertEquals(2, loadService.getCompiledDmnCount());
+
+            release.countDown();
+            assertDecisionSuccess(policy1Response, inFlight.get(30, TimeUnit.SECONDS));
+        } finally {
+            invoker.shutdownNow();
+        }
+        assertEquals(1, loadService.getCompiledDmnCount());
+        assertEquals(0, loadService.getDrainingRuntimeCount());
+        assertDecisionSuccess(context.invoke(policy2.getInfo(), new DecisionPolicyRequest(body, "A.A.A.A",
+                "simple.dmn")));
+    }
+
+    private static void awaitInvocations(AtomicInteger invocationCount, int count) throws InterruptedException {
+        int target = invocationCount.get() + count;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (invocationCount.get() < target) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private DecisionPolicyRuntimeContext newLazyContext(Set<String> eagerlyCompiledPolicies) {
+        return new DecisionPolicyRuntimeContext(new DecisionPolicyRuntimeContext().decisionPolicyRuntimeLoadService,
+                MatchingStrategies.MATCH_ALL_NON_NULL, null,
+                new DecisionPolicyRuntimeContext.Options().eagerlyCompiledPolicies(eagerlyCompiledPolicies));
+    }
+
+    @Test
+    void load_lazy_compilesOnFirstInvoke() {
+        DecisionPolicyRuntimeContext context = newLazyContext(Collections.emptySet());
+        DecisionPolicyRuntimeLoadService loadService = context.decisionPolicyRuntimeLoadService;
+        Entity.Policy policy = newSimpleDecisionPolicy("a/b/c", 1, 0, 0);
+        context.load(policy);
+        assertEquals(Collections.singletonList(policy.getInfo()), context.getLoadedEntities());
+        assertEquals(0, loadService.getCompilationCount());
+
+        HashMap<String, Serializable> body = new HashMap<String, Serializable>() {{
+            put("param-A", "stringValue");
+        }};
+        DecisionPolicyRequest request = new DecisionPolicyRequest(body, "A.A.A.A", "simple.dmn");
+        DecisionPolicyResponse expectResponse = new DecisionPolicyResponse(new HashMap<String, Serializable>() {{
+            put("Decision-1", "Decision-1 Output (config.param-A=A, param-A=stringValue)");
+            put("Decision-2", "Decision-2 Output (param-A=stringValue)");
+        }});
+        assertDecisionSuccess(expectResponse, context.invoke(policy.getInfo(), request));
+        assertDecisionSuccess(expectResponse, context.invoke(policy.getInfo(), request));
+        assertEquals(1, loadService.getCompilationCount());
+
+        // a patch replacing a compiled one is compiled at load
+        context.load(newBlankDecisionPolicy("a/b/c", 1, 0, 1));
+        assertEquals(2, loadService.getCompilationCount());
+        assertEquals(1, loadService.getCompiledDmnCount());
+
+    }
+
+    @Test
+    void load_lazy_eagerlyCompiledPolicies() {
+        DecisionPolicyRuntimeContext context = newLazyContext(Collections.singleton("a/b/c"));
+        DecisionPolicyRuntimeLoadService loadService = context.decisionPolicyRuntimeLoadService;
+        context.load(newSimpleDecisionPolicy("a/b/c", 1, 0, 0));
+        assertEquals(1, loadService.getCompilationCount());
+        Entity.Policy lazyPolicy = newBlankDecisionPolicy("a/b/d", 1, 0, 0);
+        context.load(lazyPolicy);
+        assertEquals(1, loadService.getCompilationCount());
+
+        // never compiled, so there is no runtime to remove
+        context.unload(lazyPolicy.getInfo());
+        assertEquals(1, loadService.getCompilationCount());
+        assertEquals(1, loadService.getCompiledDmnCount());
+
+    }
+
+    @Test
+    void invoke_lazy_concurrentFirstInvocationsCompileOnce() throws Exception {
+        DecisionPolicyRuntimeContext context = newLazyContext(Collections.emptySet());
+        Entity.Policy policy = newSimpleDecisionPolicy("a/b/c", 1, 0, 0);
+        context.load(policy);
+        HashMap<String, Serializable> body = new HashMap<String, Serializable>() {{
+            put("param-A", "stringValue");
+        }};
+        DecisionPolicyRequest request = new DecisionPolicyRequest(body, "A.A.A.A", "simple.dmn");
+
+        int callerCount = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(callerCount);
+        try {
+            List<Future<PolicyResult<DecisionPolicyResponse>>> invocations = new ArrayList<>();
+            for (int i = 0; i < callerCount; i++) {
+                invocations.add(callers.submit(() -> {
+                    assertTrue(start.await(30, TimeUnit.SECONDS));
+                    return context.invoke(policy.getInfo(), request);
+                }));
+            }
+            start.countDown();
+            for (Future<PolicyResult<DecisionPolicyResponse>> invocation : invocations) {
+                assertEquals(PolicyResultStatus.SUCCESS, invocation.get(30, TimeUnit.SECONDS).getStatus());
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        assertEquals(1, context.decisionPolicyRuntimeLoadService.getCompilationCount());
+
+    }
+
+    @Test
+    void invoke_evictsLeastRecentlyInvokedRuntimes() {
+        PolicyLatencyHistograms histograms = new PolicyLatencyHistograms();
+        DecisionPolicyRuntimeContext context = new DecisionPolicyRuntimeContext(
+                new DecisionPolicyRuntimeContext().decisionPolicyRuntimeLoadService,
+                MatchingStrategies.MATCH_ALL_NON_NULL, null,
+                new DecisionPolicyRuntimeContext.Options().latencyRecorder(histograms).residentRuntimeBudget(2));
+        Entity.Policy policyA = newBlankDecisionPolicy("a/b/a", 1, 0, 0);
+        Entity.Policy policyB = newBlankDecisionPolicy("a/b/b", 1, 0, 0);
+        Entity.Policy policyC = newBlankDecisionPolicy("a/b/c", 1, 0, 0);
+        DecisionPolicyRequest request = new DecisionPolicyRequest(new HashMap<>(), "A.A.A.A", "simple.dmn");
+        context.load(policyA);
+        context.load(policyB);
+        assertDecisionSuccess(context.invoke(policyA.getInfo(), request));
+
+        // b was invoked least recently
+        context.load(policyC);
+        assertEquals(2, context.getResidentRuntimeCount());
+        assertEquals(1, context.getRuntimeEvictionCount());
+        assertEquals(0, context.getRuntimeRehydrationCount());
+
+        // evicted runtimes stay loaded and are compiled again on their next invocation, evicting c
+        assertEquals(3, context.getLoadedEntities().size());
+        assertDecisionSuccess(context.invoke(policyB.getInfo(), request));
+        assertEquals(2, context.getResidentRuntimeCount());
+        assertEquals(2, context.getRuntimeEvictionCount());
+        assertEquals(1, context.getRuntimeRehydrationCount());
+        assertEquals(1, histograms.getHistogram(PolicyInvocationStage.RUNTIME_COMPILATION, "a/b/b", "1.0.0", null)
+                .getCount());
+
+        // unloading an evicted patch has no runtime to remove
+        context.unload(policyC.getInfo());
+        assertEquals(2, context.getResidentRuntimeCount());
+        assertDecisionSuccess(context.invoke(policyA.getInfo(), request));
+        assertEquals(2, context.getRuntimeEvictionCount());
+
+        // compiling a patch that was never evicted is not a rehydration, and b is rehydrated once per eviction
+        context.load(policyC);
+        assertEquals(3, context.getRuntimeEvictionCount());
+        assertEquals(1, context.getRuntimeRehydrationCount());
+        assertDecisionSuccess(context.invoke(policyB.getInfo(), request));
+        assertEquals(4, context.getRuntimeEvictionCount());
+        assertEquals(2, context.getRuntimeRehydrationCount());
+        assertEquals(2, histograms.getHistogram(PolicyInvocationStage.RUNTIME_COMPILATION, "a/b/b", "1.0.0", null)
+                .getCount());
+
+    }
+
+    @Test
+    void prepare() {
+        DecisionPolicyRuntimeContext context = new DecisionPolicyRuntimeContext(MatchingStrategies.MATCH_ALL_NON_NULL);
+        PolicyVersionService versionService = new PolicyVersionService();
+        Entity.Policy policy = newSimpleDecisionPolicy("a/b/c", 1, 0, 0);
+        context.load(policy);
+        versionService.set(policy.getInfo(), EntityActivationStatus.ACTIVE);
+
+        PreparedDecision decision = context.prepare(versionService, "a/b/c", "1", "simple.dmn", "A.A.A.A");
+        // configuration inputs are not given a slot
+        assertEquals(Collections.singletonList("param-A"), decision.getInputNames());
+        assertEquals(0, decision.slotOf("param-A"));
+        assertEquals(-1, decision.slotOf("config.param-A"));
+
+        PreparedDecision.Inputs inputs = decision.newInputs().set(0, "stringValue");
+        DecisionPolicyResponse expectResponse = new DecisionPolicyResponse(new HashMap<String, Serializable>() {{
+            put("Decision-1", "Decision-1 Output (config.param-A=A, param-A=stringValue)");
+            put("Decision-2", "Decision-2 Output (param-A=stringValue)");
+        }});
+        assertDecisionSuccess(expectResponse, decision.invoke(inputs));
+        assertEquals(Collections.singletonMap("param-A", "stringValue"), inputs);
+        assertThrows(IllegalArgumentException.class, () -> inputs.set("config.param-A", "value"));
+
+    }
+
+    @Test
+    void prepare_rebindsOnReload() {
+        DecisionPolicyRuntimeContext context = new DecisionPolicyRuntimeContext(MatchingStrategies.MATCH_ALL_NON_NULL);
+        PolicyVersionService versionService = new PolicyVersionService();
+        Entity.Policy policyA = newSimpleDecisionPolicy("a/b/c", 1, 0, 0);
+        context.load(policyA);
+        versionService.set(policyA.getInfo(), EntityActivationStatus.ACTIVE);
+
+        PreparedDecision decision = context.prepare(versionService, "a/b/c", "1.0", "simple.dmn", "A.A.A.A");
+        PreparedDecision.Inputs inputs = decision.newInputs().set("param-A", "stringValue");
+        assertEquals(PolicyResultStatus.SUCCESS, decision.invoke(inputs).getStatus());
+
+        // same patch, new content
+        Entity.Policy policyB = newBlankDecisionPolicy("a/b/c", 1, 0, 0);
+        context.load(policyB);
+        assertDecisionSuccess(decision.invoke(inputs.set("param-A", null)));
+
+        // next patch
+        Entity.Policy policyC = newSimpleDecisionPolicy("a/b/c", 1, 0, 1);
+        context.load(policyC);
+        versionService.set(policyC.getInfo(), EntityActivationStatus.ACTIVE);
+        versionService.remove(policyB.getInfo());
+        assertEquals(PolicyResultStatus.SUCCESS, decision.invoke(inputs.set("param-A", "stringValue")).getStatus());
+        assertEquals(policyC.getInfo(), decision.getPolicyVersion());
+
+        versionService.remove(policyC.getInfo());
+        assertThrows(IllegalArgumentException.class, () -> decision.invoke(inputs));
+
+    }
+
+    @Test
+    void prepare_error_missingDmn() {
+        DecisionPolicyRuntimeContext context = new DecisionPolicyRuntimeContext();
+        PolicyVersionService versionService = new PolicyVersionService();
+        Entity.Policy policy = newBlankDecisionPolicy("a/b/c", 1, 0, 0);
+        context.load(policy);
+        versionService.set(policy.getInfo(), EntityActivationStatus.ACTIVE);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> context.prepare(versionService, "a/b/c", "1", "unknownDMN.dmn", "A.A.A.A"));
+        assertThrows(IllegalArgumentException.class,
+                () -> context.prepare(versionService, "a/b/d", "1", "simple.dmn", "A.A.A.A"));
+
+    }
+
     private void assertDecisionFailure(PolicyErrorInfo expectedError,
                                        PolicyResult<DecisionPolicyResponse> actualResult) {
         assertEquals(PolicyResultStatus.FAILURE, actualResult.getStatus());
@@ -0,0 +1,138 @@
+package com.capitalone.identity.platform;
+
+import com.capitalone.identity.platform.runtime.PolicyResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecisionRequestCoalescerTest {
+
+    private static final String PATCH = "a/b/c/1.0.0";
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final DecisionRequestCoalescer coalescer = new DecisionRequestCoalescer();
+
+    private final DecisionPolicyRequest request =
+            new DecisionPolicyRequest(Collections.singletonMap("a", 1), "A.A.A.A", "simple.dmn");
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void execute_concurrentIdenticalRequestsShareEvaluation() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger evaluations = new AtomicInteger();
+        Object generation = new Object();
+
+        Future<PolicyResult<DecisionPolicyResponse>> leader = executor.submit(() ->
+                coalescer.execute(PATCH, request, generation, () -> {
+                    evaluations.incrementAndGet();
+                    started.countDown();
+                    awaitUninterruptibly(release);
+                    return new PolicyResult.Success<>(new DecisionPolicyResponse(Collections.emptyMap()));
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        List<Future<PolicyResult<DecisionPolicyResponse>>> followers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            followers.add(executor.submit(() -> coalescer.execute(PATCH, request, generation, () -> {
+                evaluations.incrementAndGet();
+                return new PolicyResult.Success<>(new DecisionPolicyResponse(Collections.emptyMap()));
+            })));
+        }
+        // followers are waiting on the leader
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalescer.getCoalescedCount() < 4 && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+        assertEquals(4, coalescer.getCoalescedCount());
+        release.countDown();
+
+        PolicyResult<DecisionPolicyResponse> result = leader.get(5, TimeUnit.SECONDS);
+        for (Future<PolicyResult<DecisionPolicyResponse>> follower : followers) {
+            assertSame(result, follower.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, evaluations.get());
+        assertEquals(1, coalescer.getEvaluationCount());
+
+        // nothing is retained after completion
+        coalescer.execute(PATCH, request, generation,
+                () -> new PolicyResult.Success<>(new DecisionPolicyResponse(Collections.emptyMap())));
+        assertEquals(2, coalescer.getEvaluationCount());
+    }
+
+    @Test
+    void execute_differentPatchOrGenerationEvaluatesSeparately() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Object generation = new Object();
+
+        Future<PolicyResult<DecisionPolicyResponse>> leader = executor.submit(() ->
+                coalescer.execute(PATCH, request, generation, () -> {
+                    started.countDown();
+                    awaitUninterruptibly(release);
+                    return new PolicyResult.Success<>(new DecisionPolicyResponse(Collections.emptyMap()));
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        PolicyResult<DecisionPolicyResponse> otherPatch = new PolicyResult.Success<>(
+                new DecisionPolicyResponse(Collections.emptyMap()));
+        assertSame(otherPatch, coalescer.execute("a/b/c/1.0.1", request, generation, () -> otherPatch));
+        PolicyResult<DecisionPolicyResponse> reloaded = new PolicyResult.Success<>(
+                new DecisionPolicyResponse(Collections.emptyMap()));
+        assertSame(reloaded, coalescer.execute(PATCH, request, new Object(), () -> reloaded));
+        assertEquals(0, coalescer.getCoalescedCount());
+
+        release.countDown();
+        assertNotNull(leader.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void execute_leaderFailureIsShared() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Object generation = new Object();
+
+        Future<PolicyResult<DecisionPolicyResponse>> leader = executor.submit(() ->
+                coalescer.execute(PATCH, request, generation, () -> {
+                    started.countDown();
+                    awaitUninterruptibly(release);
+                    throw new IllegalArgumentException("test");
+                }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<PolicyResult<DecisionPolicyResponse>> follower = executor.submit(() ->
+                coalescer.execute(PATCH, request, generation, () -> {
+                    throw new AssertionError("evaluation not expected");
+                }));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalescer.getCoalescedCount() < 1 && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+        release.countDown();
+
+        ExecutionException leaderError = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, leaderError.getCause());
+        ExecutionException followerError =
+                assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalArgumentException.class, followerError.getCause());
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
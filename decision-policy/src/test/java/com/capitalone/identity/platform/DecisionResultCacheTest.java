@@ -0,0 +1,166 @@
+package com.capitalone.identity.platform;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecisionResultCacheTest {
+
+    private final AtomicLong time = new AtomicLong();
+
+    private static DecisionPolicyRequest newRequest(String businessEvent, String dmnName, Map<String, Serializable> body) {
+        return new DecisionPolicyRequest(body, businessEvent, dmnName);
+    }
+
+    private static DecisionPolicyResponse newResponse(String value) {
+        return new DecisionPolicyResponse(Collections.singletonMap("result", value));
+    }
+
+    @Test
+    void getAndPut() {
+        DecisionResultCache cache = new DecisionResultCache(10, Duration.ofMinutes(1), time::get);
+        Map<String, Serializable> body = new HashMap<>();
+        body.put("a", 1);
+        body.put("b", "x");
+        DecisionPolicyRequest request = newRequest("A.A.A.A", "simple.dmn", body);
+
+        assertNull(cache.get("a/b/c/1.0.0", request));
+        DecisionPolicyResponse cached = cache.put("a/b/c/1.0.0", request, newResponse("r1"));
+        assertEquals(newResponse("r1"), cached);
+        assertThrows(UnsupportedOperationException.class, () -> cached.getContent().clear());
+
+        // same body content in a different map type and order
+        Map<String, Serializable> sameBody = new TreeMap<>();
+        sameBody.put("b", "x");
+        sameBody.put("a", 1);
+        assertSame(cached, cache.get("a/b/c/1.0.0", newRequest("A.A.A.A", "simple.dmn", sameBody)));
+
+        // every key component distinguishes entries
+        assertNull(cache.get("a/b/c/1.0.1", request));
+        assertNull(cache.get("a/b/c/1.0.0", newRequest("B.B.B.B", "simple.dmn", body)));
+        assertNull(cache.get("a/b/c/1.0.0", newRequest("A.A.A.A", "other.dmn", body)));
+        assertNull(cache.get("a/b/c/1.0.0", newRequest("A.A.A.A", "simple.dmn", Collections.singletonMap("a", 1))));
+
+        // later changes to the caller's body do not alter the cached key
+        body.put("c", true);
+        assertNull(cache.get("a/b/c/1.0.0", request));
+        assertNotNull(cache.get("a/b/c/1.0.0", newRequest("A.A.A.A", "simple.dmn", sameBody)));
+
+        DecisionResultCacheStatistics statistics = cache.getStatistics();
+        assertEquals(1, statistics.getSize());
+        assertEquals(2, statistics.getHitCount());
+        assertEquals(6, statistics.getMissCount());
+        assertEquals(0.25, statistics.getHitRatio());
+    }
+
+    @Test
+    void expiration() {
+        DecisionResultCache cache = new DecisionResultCache(10, Duration.ofNanos(100), time::get);
+        DecisionPolicyRequest request = newRequest("A.A.A.A", "simple.dmn", Collections.emptyMap());
+        cache.put("a/b/c/1.0.0", request, newResponse("r1"));
+
+        time.set(99);
+        assertNotNull(cache.get("a/b/c/1.0.0", request));
+        time.set(100);
+        assertNull(cache.get("a/b/c/1.0.0", request));
+        assertEquals(1, cache.getStatistics().getExpirationCount());
+        assertEquals(0, cache.getStatistics().getSize());
+    }
+
+    @Test
+    void eviction() {
+        DecisionResultCache cache = new DecisionResultCache(2, Duration.ofMinutes(1), time::get);
+        for (int i = 0; i < 3; i++) {
+            cache.put("a/b/c/1.0.0", newRequest("A.A.A.A", "simple.dmn", Collections.singletonMap("i", i)),
+                    newResponse("r" + i));
+        }
+        assertNull(cache.get("a/b/c/1.0.0", newRequest("A.A.A.A", "simple.dmn", Collections.singletonMap("i", 0))));
+        assertNotNull(cache.get("a/b/c/1.0.0", newRequest("A.A.A.A", "simple.dmn", Collections.singletonMap("i", 2))));
+        assertEquals(1, cache.getStatistics().getEvictionCount());
+        assertEquals(2, cache.getStatistics().getSize());
+    }
+
+    @Test
+    void eviction_leastRecentlyUsed() {
+        DecisionResultCache cache = new DecisionResultCache(2, Duration.ofMinutes(1), time::get);
+        DecisionPolicyRequest first = newRequest("A.A.A.A", "simple.dmn", Collections.singletonMap("i", 0));
+        DecisionPolicyRequest second = newRequest("A.A.A.A", "simple.dmn", Collections.singletonMap("i", 1));
+        cache.put("a/b/c/1.0.0", first, newResponse("r0"));
+        cache.put("a/b/c/1.0.0", second, newResponse("r1"));
+        // reading the first entry makes the second one the least recently used
+        assertNotNull(cache.get("a/b/c/1.0.0", first));
+
+        cache.put("a/b/c/1.0.0", newRequest("A.A.A.A", "simple.dmn", Collections.singletonMap("i", 2)),
+                newResponse("r2"));
+        assertNotNull(cache.get("a/b/c/1.0.0", first));
+        assertNull(cache.get("a/b/c/1.0.0", second));
+        assertEquals(1, cache.getStatistics().getEvictionCount());
+    }
+
+    @Test
+    void eviction_segmentedCacheKeepsMaximumSize() {
+        DecisionResultCache cache = new DecisionResultCache(1_000, Duration.ofMinutes(1), time::get);
+        for (int i = 0; i < 5_000; i++) {
+            cache.put("a/b/c/1.0.0", newRequest("A.A.A.A", "simple.dmn", Collections.singletonMap("i", i)),
+                    newResponse("r" + i));
+        }
+        assertEquals(1_000, cache.getStatistics().getSize());
+        assertEquals(4_000, cache.getStatistics().getEvictionCount());
+        assertNotNull(cache.get("a/b/c/1.0.0",
+                newRequest("A.A.A.A", "simple.dmn", Collections.singletonMap("i", 4_999))));
+    }
+
+    @Test
+    void eviction_afterExpiredEntryIsPutAgain() {
+        DecisionResultCache cache = new DecisionResultCache(2, Duration.ofNanos(100), time::get);
+        DecisionPolicyRequest expiring = newRequest("A.A.A.A", "simple.dmn", Collections.singletonMap("i", 0));
+        for (int i = 0; i < 1_000; i++) {
+            cache.put("a/b/c/1.0.0", expiring, newResponse("r" + i));
+            time.addAndGet(100);
+            assertNull(cache.get("a/b/c/1.0.0", expiring));
+        }
+        assertEquals(1_000, cache.getStatistics().getExpirationCount());
+        assertEquals(0, cache.getStatistics().getSize());
+
+        // the expired puts leave nothing behind that could evict fresh entries early
+        cache.put("a/b/c/1.0.0", expiring, newResponse("r"));
+        DecisionPolicyRequest other = newRequest("A.A.A.A", "simple.dmn", Collections.singletonMap("i", 1));
+        cache.put("a/b/c/1.0.0", other, newResponse("r"));
+        assertNotNull(cache.get("a/b/c/1.0.0", expiring));
+        assertNotNull(cache.get("a/b/c/1.0.0", other));
+        assertEquals(0, cache.getStatistics().getEvictionCount());
+
+        cache.put("a/b/c/1.0.0", newRequest("A.A.A.A", "simple.dmn", Collections.singletonMap("i", 2)),
+                newResponse("r"));
+        assertNull(cache.get("a/b/c/1.0.0", expiring));
+        assertEquals(1, cache.getStatistics().getEvictionCount());
+        assertEquals(2, cache.getStatistics().getSize());
+    }
+
+    @Test
+    void invalidate() {
+        DecisionResultCache cache = new DecisionResultCache(10, Duration.ofMinutes(1), time::get);
+        DecisionPolicyRequest request = newRequest("A.A.A.A", "simple.dmn", Collections.emptyMap());
+        cache.put("a/b/c/1.0.0", request, newResponse("r1"));
+        cache.put("a/b/c/1.0.1", request, newResponse("r2"));
+
+        cache.invalidate("a/b/c/1.0.0");
+        assertNull(cache.get("a/b/c/1.0.0", request));
+        assertEquals(newResponse("r2"), cache.get("a/b/c/1.0.1", request));
+        assertEquals(1, cache.getStatistics().getInvalidationCount());
+    }
+
+    @Test
+    void constructor_invalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new DecisionResultCache(0, Duration.ofMinutes(1)));
+        assertThrows(IllegalArgumentException.class, () -> new DecisionResultCache(1, Duration.ZERO));
+    }
+}
@@ -0,0 +1,43 @@
+package metrics;
+
+import com.capitalone.identity.platform.metrics.PolicyInvocationStage;
+import com.capitalone.identity.platform.metrics.PolicyLatencyHistograms;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording one latency measurement into {@link PolicyLatencyHistograms}, including the timestamps a runtime
+ * takes around the measured stage. Run with several threads to see contention on shared histograms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1)
+public class PolicyLatencyHistogramsBenchmarkTest {
+
+    private static final String POLICY_NAME = "us_consumers/sub_lob/local_policy";
+
+    private final PolicyLatencyHistograms histograms = new PolicyLatencyHistograms();
+
+    @Benchmark
+    public void record() {
+        histograms.record(PolicyInvocationStage.ENGINE_EVALUATION, POLICY_NAME, "1.0.0", "simple.dmn", 1_234);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended() {
+        histograms.record(PolicyInvocationStage.ENGINE_EVALUATION, POLICY_NAME, "1.0.0", "simple.dmn", 1_234);
+    }
+
+    @Benchmark
+    public long timeAndRecord() {
+        final long start = System.nanoTime();
+        final long end = System.nanoTime();
+        histograms.record(PolicyInvocationStage.ENGINE_EVALUATION, POLICY_NAME, "1.0.0", "simple.dmn", end - start);
+        return end;
+    }
+}
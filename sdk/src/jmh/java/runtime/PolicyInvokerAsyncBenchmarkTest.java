@@ -0,0 +1,95 @@
+package runtime;
+
+import com.capitalone.identity.identitybuilder.model.EntityActivationStatus;
+import com.capitalone.identity.platform.runtime.*;
+import com.capitalone.identity.platform.versioning.PolicyDataObject;
+import com.capitalone.identity.platform.versioning.PolicyVersionService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a caller thread (standing in for a reactive event loop) that evaluates a burst of requests inline through
+ * {@link PolicyInvoker#invoke} with one that dispatches the same burst through {@link PolicyInvoker#invokeAsync}.
+ * Evaluation is simulated with a fixed amount of CPU work per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1)
+public class PolicyInvokerAsyncBenchmarkTest {
+
+    public enum ExecutorType {PLATFORM, VIRTUAL}
+
+    private static final String ADDRESS = "us_consumers/sub_lob/local_policy";
+    private static final int BURST_SIZE = 32;
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    ExecutorType executorType;
+
+    @Param({"1000", "10000"})
+    long evaluationTokens;
+
+    private ExecutorService executor;
+    private PolicyInvoker<String, String> invoker;
+
+    private final PolicyResultHandler<String, String> handler = new PolicyResultHandler<String, String>() {
+        @Override
+        public String createResponseForMissingPolicy(String requestAddress, String requestVersion) {
+            return null;
+        }
+
+        @Override
+        public String createSuccessResponse(PolicyRequestInfo requestInfo, String policyInvocationResult) {
+            return policyInvocationResult;
+        }
+
+        @Override
+        public String createErrorResponse(PolicyRequestInfo requestInfo, PolicyErrorInfo errorInfo) {
+            return null;
+        }
+    };
+
+    @Setup
+    public void setUp() {
+        PolicyVersionService versionService = new PolicyVersionService();
+        versionService.set(new PolicyDataObject(0, 1, 0, ADDRESS), EntityActivationStatus.ACTIVE);
+        // falls back to platform threads when the JVM running the benchmark has no virtual thread support
+        executor = executorType == ExecutorType.VIRTUAL && PolicyExecutors.isVirtualThreadSupported()
+                ? PolicyExecutors.newVirtualThreadPerTaskExecutor()
+                : PolicyExecutors.newInvocationExecutor();
+        invoker = new PolicyInvoker<>((policy, request) -> {
+            Blackhole.consumeCPU(evaluationTokens);
+            return new PolicyResult.Success<>(request);
+        }, versionService, new PolicyInvoker.Options().invocationExecutor(executor));
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST_SIZE)
+    public void invokeInline(Blackhole bh) {
+        for (int i = 0; i < BURST_SIZE; i++) {
+            bh.consume(invoker.invoke(ADDRESS, "1", "request", handler));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST_SIZE)
+    public void invokeAsync(Blackhole bh) {
+        CompletableFuture<?>[] results = new CompletableFuture<?>[BURST_SIZE];
+        for (int i = 0; i < BURST_SIZE; i++) {
+            results[i] = invoker.invokeAsync(ADDRESS, "1", "request", handler);
+        }
+        bh.consume(CompletableFuture.allOf(results).join());
+    }
+
+}
@@ -0,0 +1,64 @@
+package versioning;
+
+import com.capitalone.identity.identitybuilder.model.EntityActivationStatus;
+import com.capitalone.identity.identitybuilder.model.LogicalVersion;
+import com.capitalone.identity.platform.versioning.PolicyDataObject;
+import com.capitalone.identity.platform.versioning.PolicyVersionService;
+import org.apache.commons.collections4.MultiValuedMap;
+import org.apache.commons.collections4.multimap.HashSetValuedHashMap;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Prints the retained heap of a version catalog held by {@link PolicyVersionService} next to the same catalog held in
+ * the original layout (a status map plus a multimap with three concatenated string keys per version).
+ * <p>
+ * Run the {@link #main} method from the jmh source set, optionally passing policy, minor and patch counts.
+ */
+public class PolicyVersionFootprintComparison {
+
+    /**
+     * The version layout used by {@link PolicyVersionService} before it was reworked, kept for comparison.
+     */
+    static class LegacyLayout {
+        final Map<PolicyDataObject, EntityActivationStatus> policyStatusMap = new HashMap<>();
+        final MultiValuedMap<String, PolicyDataObject> policyVersionMap = new HashSetValuedHashMap<>();
+
+        void set(LogicalVersion policy, EntityActivationStatus policyActivationStatus) {
+            PolicyDataObject policyDataObject = PolicyDataObject.create(policy);
+            policyStatusMap.put(policyDataObject, policyActivationStatus);
+            policyVersionMap.get(policy.getName() + policy.getMinorVersionString()).add(policyDataObject);
+            policyVersionMap.get(policy.getName() + policy.getMajorVersion()).add(policyDataObject);
+            policyVersionMap.get(policy.getName() + policy.getPatchVersionString()).add(policyDataObject);
+        }
+    }
+
+    public static void main(String[] args) {
+        int policyCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int minorCount = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int patchCount = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        LegacyLayout legacy = new LegacyLayout();
+        PolicyVersionService service = new PolicyVersionService();
+        for (int policy = 0; policy < policyCount; policy++) {
+            String name = "us_consumers/sub_lob/policy_" + policy;
+            for (int minor = 0; minor < minorCount; minor++) {
+                for (int patch = 0; patch < patchCount; patch++) {
+                    // separate instances per layout so neither graph is charged for objects the other retains
+                    legacy.set(new PolicyDataObject(minor, 1, patch, name), EntityActivationStatus.ACTIVE);
+                    service.set(new PolicyDataObject(minor, 1, patch, name), EntityActivationStatus.ACTIVE);
+                }
+            }
+        }
+
+        long legacyBytes = GraphLayout.parseInstance(legacy).totalSize();
+        long serviceBytes = GraphLayout.parseInstance(service).totalSize();
+        int versionCount = policyCount * minorCount * patchCount;
+        System.out.printf("versions=%d%n", versionCount);
+        System.out.printf("legacy layout:  %,d bytes (%d bytes/version)%n", legacyBytes, legacyBytes / versionCount);
+        System.out.printf("version index:  %,d bytes (%d bytes/version)%n", serviceBytes, serviceBytes / versionCount);
+        System.out.printf("reduction:      %.2fx%n", (double) legacyBytes / serviceBytes);
+    }
+}
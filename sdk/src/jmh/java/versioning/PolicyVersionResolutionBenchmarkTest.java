@@ -0,0 +1,140 @@
+package versioning;
+
+import com.capitalone.identity.identitybuilder.model.EntityActivationStatus;
+import com.capitalone.identity.platform.versioning.PolicyDataObject;
+import com.capitalone.identity.platform.versioning.PolicyVersionChange;
+import com.capitalone.identity.platform.versioning.PolicyVersionService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request version resolution through {@link PolicyVersionService#getPolicyVersion} at catalog scale.
+ * <p>
+ * Parameters cover catalog size, versions per policy, selector type and hit vs miss traffic. Reader thread count is
+ * set at run time (e.g. {@code -t 1}, {@code -t 4}, {@code -t max}); {@code resolveWhileChurning} pairs three readers
+ * with a writer that continuously sets and removes a patch. Allocation per operation is reported by the GC profiler
+ * configured in the build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1)
+public class PolicyVersionResolutionBenchmarkTest {
+
+    public enum SelectorType {MAJOR, MINOR}
+
+    private static final int MAJOR_VERSION = 1;
+    private static final int SELECTOR_COUNT = 1024;
+
+    @Param({"10", "1000", "100000"})
+    int policyCount;
+
+    @Param({"1", "10"})
+    int minorVersionsPerPolicy;
+
+    @Param({"1", "5"})
+    int patchVersionsPerMinor;
+
+    @Param({"MAJOR", "MINOR"})
+    SelectorType selectorType;
+
+    @Param({"true", "false"})
+    boolean hit;
+
+    PolicyVersionService service;
+
+    static String policyName(int index) {
+        return "us_consumers/sub_lob/policy_" + index;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<PolicyVersionChange> catalog = new ArrayList<>();
+        for (int policy = 0; policy < policyCount; policy++) {
+            String name = policyName(policy);
+            for (int minor = 0; minor < minorVersionsPerPolicy; minor++) {
+                for (int patch = 0; patch < patchVersionsPerMinor; patch++) {
+                    catalog.add(new PolicyVersionChange.Set(
+                            new PolicyDataObject(minor, MAJOR_VERSION, patch, name), EntityActivationStatus.ACTIVE));
+                }
+            }
+        }
+        service = new PolicyVersionService();
+        service.applyBatch(catalog);
+    }
+
+    /**
+     * Precomputed (address, selector) pairs so the measured operation does no string building.
+     */
+    @State(Scope.Thread)
+    public static class Requests {
+        String[] addresses;
+        String[] versions;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(PolicyVersionResolutionBenchmarkTest benchmark) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            addresses = new String[SELECTOR_COUNT];
+            versions = new String[SELECTOR_COUNT];
+            for (int i = 0; i < SELECTOR_COUNT; i++) {
+                int policy = random.nextInt(benchmark.policyCount);
+                int minor = random.nextInt(benchmark.minorVersionsPerPolicy);
+                boolean unknownAddress = !benchmark.hit && i % 2 == 0;
+                int major = benchmark.hit || unknownAddress ? MAJOR_VERSION : MAJOR_VERSION + 1;
+                addresses[i] = unknownAddress
+                        ? policyName(benchmark.policyCount + policy)
+                        : policyName(policy);
+                versions[i] = benchmark.selectorType == SelectorType.MAJOR
+                        ? String.valueOf(major)
+                        : major + "." + minor;
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Churn {
+        PolicyDataObject patch;
+        boolean loaded;
+
+        @Setup(Level.Trial)
+        public void setUp(PolicyVersionResolutionBenchmarkTest benchmark) {
+            patch = new PolicyDataObject(0, MAJOR_VERSION, benchmark.patchVersionsPerMinor,
+                    policyName(ThreadLocalRandom.current().nextInt(benchmark.policyCount)));
+        }
+    }
+
+    @Benchmark
+    public void resolve(Requests requests, Blackhole bh) {
+        int i = requests.next++ & (SELECTOR_COUNT - 1);
+        bh.consume(service.getPolicyVersion(requests.addresses[i], requests.versions[i]));
+    }
+
+    @Benchmark
+    @Group("resolveWhileChurning")
+    @GroupThreads(3)
+    public void reader(Requests requests, Blackhole bh) {
+        int i = requests.next++ & (SELECTOR_COUNT - 1);
+        bh.consume(service.getPolicyVersion(requests.addresses[i], requests.versions[i]));
+    }
+
+    @Benchmark
+    @Group("resolveWhileChurning")
+    @GroupThreads(1)
+    public void writer(Churn churn) {
+        if (churn.loaded) {
+            service.remove(churn.patch);
+        } else {
+            service.set(churn.patch, EntityActivationStatus.ACTIVE);
+        }
+        churn.loaded = !churn.loaded;
+    }
+
+}
@@ -0,0 +1,103 @@
+package versioning;
+
+import com.capitalone.identity.identitybuilder.model.EntityActivationStatus;
+import com.capitalone.identity.platform.versioning.PolicyDataObject;
+import com.capitalone.identity.platform.versioning.PolicyVersionService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures version resolution throughput while the loader thread streams in updates. Run with increasing
+ * reader counts (e.g. {@code -t 1}, {@code -t 2}, {@code -t 4} ...) to check that read throughput scales with cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 2)
+public class PolicyVersionServiceBenchmarkTest {
+    private static final int POLICY_COUNT = 500;
+    private static final int MINOR_VERSION_COUNT = 5;
+    private static final int PATCH_VERSION_COUNT = 3;
+
+    private PolicyVersionService service;
+
+    @Setup
+    public void setUp() {
+        service = new PolicyVersionService();
+        for (int policy = 0; policy < POLICY_COUNT; policy++) {
+            for (int minor = 0; minor < MINOR_VERSION_COUNT; minor++) {
+                for (int patch = 0; patch < PATCH_VERSION_COUNT; patch++) {
+                    service.set(new PolicyDataObject(minor, 1, patch, policyName(policy)), EntityActivationStatus.ACTIVE);
+                }
+            }
+        }
+    }
+
+    private static String policyName(int index) {
+        return "us_consumers/sub_lob/policy_" + index;
+    }
+
+    @State(Scope.Thread)
+    public static class Selectors {
+        String[] names;
+        int next;
+
+        @Setup
+        public void setUp() {
+            names = new String[POLICY_COUNT];
+            for (int i = 0; i < POLICY_COUNT; i++) {
+                names[i] = policyName(i);
+            }
+            next = ThreadLocalRandom.current().nextInt(POLICY_COUNT);
+        }
+
+        String nextName() {
+            next = next + 1 == POLICY_COUNT ? 0 : next + 1;
+            return names[next];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Updates {
+        int policy;
+        boolean present;
+
+        @Setup
+        public void setUp() {
+            policy = ThreadLocalRandom.current().nextInt(POLICY_COUNT);
+        }
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void readOnly(Selectors selectors, Blackhole bh) {
+        bh.consume(service.getPolicyVersion(selectors.nextName(), "1"));
+    }
+
+    @Benchmark
+    @Group("readWhileUpdating")
+    @GroupThreads(3)
+    public void reader(Selectors selectors, Blackhole bh) {
+        bh.consume(service.getPolicyVersion(selectors.nextName(), "1"));
+    }
+
+    @Benchmark
+    @Group("readWhileUpdating")
+    @GroupThreads(1)
+    public void writer(Updates updates) {
+        PolicyDataObject version = new PolicyDataObject(MINOR_VERSION_COUNT, 1, 0, policyName(updates.policy));
+        if (updates.present) {
+            service.remove(version);
+            updates.policy = updates.policy + 1 == POLICY_COUNT ? 0 : updates.policy + 1;
+        } else {
+            service.set(version, EntityActivationStatus.ACTIVE);
+        }
+        updates.present = !updates.present;
+    }
+
+}
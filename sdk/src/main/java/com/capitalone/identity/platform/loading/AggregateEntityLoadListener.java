@@ -5,7 +5,8 @@ import org.slf4j.LoggerFactory;
 
 import java.util.function.Consumer;
 
-public class AggregateEntityLoadListener implements EntityLoadEvents_ApplicationEventPublisher {
+public class AggregateEntityLoadListener implements EntityLoadEvents_ApplicationEventPublisher,
+        EntityLoadBatchListener {
     private static final Logger logger = LoggerFactory.getLogger(AggregateEntityLoadListener.class);
     EntityLoadEvents_ApplicationEventPublisher[] listeners;
 
@@ -23,6 +24,24 @@ public class AggregateEntityLoadListener implements EntityLoadEvents_Application
         }
     }
 
+    @Override
+    public void beginBatch() {
+        executeOnAll(publisher -> {
+            if (publisher instanceof EntityLoadBatchListener) {
+                ((EntityLoadBatchListener) publisher).beginBatch();
+            }
+        });
+    }
+
+    @Override
+    public void endBatch() {
+        executeOnAll(publisher -> {
+            if (publisher instanceof EntityLoadBatchListener) {
+                ((EntityLoadBatchListener) publisher).endBatch();
+            }
+        });
+    }
+
     @Override
     public void publishEvent(Failure event) {
         executeOnAll(publisher -> publisher.publishEvent(event));
@@ -0,0 +1,16 @@
+package com.capitalone.identity.platform.loading;
+
+/**
+ * Implemented by an {@link EntityLoadEvents_ApplicationEventPublisher} that applies the events of one load batch
+ * together. {@link PolicyLoadManager} brackets the startup catalog and every update batch with these calls; the events
+ * in between may be published from several load threads.
+ */
+public interface EntityLoadBatchListener {
+
+    void beginBatch();
+
+    /**
+     * Called once for every {@link #beginBatch()}, including when the batch failed.
+     */
+    void endBatch();
+}
@@ -16,6 +16,8 @@ import reactor.util.retry.Retry;
 import java.time.Clock;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -23,12 +25,19 @@ import java.util.stream.Collectors;
 public class PolicyLoadManager {
 
     private static final Logger logger = LogManager.getLogger(PolicyLoadManager.class.getName());
+
+    /**
+     * Runs every load on the calling thread, one entity after the other.
+     */
+    private static final Executor SEQUENTIAL_LOAD_EXECUTOR = Runnable::run;
+
     private final EntityLoadEvents_ApplicationEventPublisher eventPublisher;
     private final PolicyLoadTarget policyLoadTarget;
     private final ConfigStoreClient client;
 
     private final Clock clock;
     private final boolean isStrictStartupMode;
+    private final Executor loadExecutor;
 
     private boolean isInitialized = false;
     private Disposable dynamicUpdateSubscription;
@@ -66,6 +75,26 @@ public class PolicyLoadManager {
                              @NotNull ConfigStoreClient configStoreClient,
                              @NotNull Clock clock,
                              boolean isStrictStartupMode) {
+        this(policyLoadTarget, publisher, configStoreClient, clock, isStrictStartupMode, SEQUENTIAL_LOAD_EXECUTOR);
+    }
+
+    /**
+     * @param loadExecutor runs the loads of the startup catalog and of each update batch. Different entities are
+     *                     loaded concurrently when the executor has more than one thread, while the operations on one
+     *                     entity still run in order. The load target must then support concurrent loads of different
+     *                     entities, and the publisher must accept events from the executor's threads. See
+     *                     {@link com.capitalone.identity.platform.runtime.PolicyExecutors#newLoadExecutor()} for a
+     *                     bounded pool sized to the available processors.
+     * @see #PolicyLoadManager(PolicyLoadTarget, EntityLoadEvents_ApplicationEventPublisher, ConfigStoreClient, Clock,
+     * boolean)
+     */
+    public PolicyLoadManager(@NotNull PolicyLoadTarget policyLoadTarget,
+                             @NotNull EntityLoadEvents_ApplicationEventPublisher publisher,
+                             @NotNull ConfigStoreClient configStoreClient,
+                             @NotNull Clock clock,
+                             boolean isStrictStartupMode,
+                             @NotNull Executor loadExecutor) {
+        this.loadExecutor = Objects.requireNonNull(loadExecutor);
         this.eventPublisher = Objects.requireNonNull(publisher);
         this.policyLoadTarget = Objects.requireNonNull(policyLoadTarget);
         this.client = Objects.requireNonNull(configStoreClient);
@@ -77,8 +106,10 @@ public class PolicyLoadManager {
 
         if (isInitialized) throw new IllegalStateException("Load manager already initialized.");
 
-        List<EntityLoadOperationResult> results = client.getEntityInfo(EntityType.POLICY).toStream()
-                .map(info -> tryLoadEntity(EntityState.Delta.ChangeType.ADD, info, true))
+        List<EntityInfo> catalog = client.getEntityInfo(EntityType.POLICY).toStream().collect(Collectors.toList());
+        List<EntityLoadOperationResult> results = applyAll(catalog, Function.identity(),
+                info -> tryLoadEntity(EntityState.Delta.ChangeType.ADD, info, true))
+                .stream()
                 .flatMap(List::stream)
                 .collect(Collectors.toList());
 
@@ -95,8 +126,8 @@ public class PolicyLoadManager {
                 ))
                 .map(updates -> {
                     List<AggregatedLoadError> errors = new ArrayList<>();
-                    for (EntityState.Delta<EntityInfo> update : updates) {
-                        List<EntityLoadOperationResult> updateResults = applyUpdate(update);
+                    for (List<EntityLoadOperationResult> updateResults :
+                            applyAll(updates, update -> update.getEntityInfo(), this::applyUpdate)) {
                         AggregatedLoadError updateError = consolidateLoadErrors(updateResults);
                         if (updateError != null) {
                             errors.add(updateError);
@@ -153,6 +184,56 @@ public class PolicyLoadManager {
         }
     }
 
+    /**
+     * Applies the operation to every item as one batch, bracketed for an {@link EntityLoadBatchListener} publisher.
+     *
+     * @return the results of each item, in the order of the items
+     */
+    private <T> List<List<EntityLoadOperationResult>> applyAll(List<T> items,
+                                                               Function<T, EntityInfo> entityInfo,
+                                                               Function<T, List<EntityLoadOperationResult>> operation) {
+        if (!(eventPublisher instanceof EntityLoadBatchListener)) {
+            return applyEach(items, entityInfo, operation);
+        }
+        EntityLoadBatchListener batchListener = (EntityLoadBatchListener) eventPublisher;
+        batchListener.beginBatch();
+        try {
+            return applyEach(items, entityInfo, operation);
+        } finally {
+            batchListener.endBatch();
+        }
+    }
+
+    /**
+     * Applies the operation to every item on the load executor. Items of the same entity are applied in order by a
+     * single task; items of different entities may be applied concurrently.
+     *
+     * @return the results of each item, in the order of the items
+     */
+    private <T> List<List<EntityLoadOperationResult>> applyEach(List<T> items,
+                                                                Function<T, EntityInfo> entityInfo,
+                                                                Function<T, List<EntityLoadOperationResult>> operation) {
+        if (loadExecutor == SEQUENTIAL_LOAD_EXECUTOR) {
+            return items.stream().map(operation).collect(Collectors.toList());
+        }
+        Map<String, List<Integer>> itemsByEntity = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            itemsByEntity.computeIfAbsent(entityInfo.apply(items.get(i)).getId(), id -> new ArrayList<>()).add(i);
+        }
+        @SuppressWarnings("unchecked")
+        List<EntityLoadOperationResult>[] results = new List[items.size()];
+        CompletableFuture<?>[] tasks = itemsByEntity.values().stream()
+                .map(indexes -> CompletableFuture.runAsync(() -> {
+                    for (int index : indexes) {
+                        results[index] = operation.apply(items.get(index));
+                    }
+                }, loadExecutor))
+                .toArray(CompletableFuture<?>[]::new);
+        // completion of every task happens-before join returns, so the results array is fully visible here
+        CompletableFuture.allOf(tasks).join();
+        return Arrays.asList(results);
+    }
+
     private List<EntityLoadOperationResult> applyUpdate(EntityState.Delta<EntityInfo> delta) {
         switch (delta.getType()) {
             case ADD:
@@ -0,0 +1,95 @@
+package com.capitalone.identity.platform.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of nanosecond latencies with log-linear buckets, in the style of HdrHistogram.
+ * <p>
+ * Values below 32ns are counted exactly. Above that, each power-of-two range is split into 16 linear sub-buckets, so a
+ * reported value is within 1/16 (6.25%) of the recorded one. Values are tracked up to about 68 seconds; larger values
+ * are counted in the top bucket. Recording is a bucket index computation and one atomic increment, and a histogram
+ * takes about 4 KB.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int LINEAR_BUCKET_COUNT = SUB_BUCKET_COUNT << 1;
+
+    private static final long MAX_TRACKABLE_VALUE = (1L << 36) - 1;
+
+    static final int BUCKET_COUNT = indexOf(MAX_TRACKABLE_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong maxValue = new AtomicLong();
+
+    static int indexOf(long value) {
+        if (value < LINEAR_BUCKET_COUNT) {
+            return (int) Math.max(value, 0);
+        }
+        long clamped = Math.min(value, MAX_TRACKABLE_VALUE);
+        int shift = (63 - Long.numberOfLeadingZeros(clamped)) - SUB_BUCKET_BITS;
+        return LINEAR_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_COUNT + (int) (clamped >>> shift) - SUB_BUCKET_COUNT;
+    }
+
+    /**
+     * @return the largest value counted in the bucket at {@code index}
+     */
+    static long highestValueAt(int index) {
+        if (index < LINEAR_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - LINEAR_BUCKET_COUNT) / SUB_BUCKET_COUNT + 1;
+        long subBucket = (index - LINEAR_BUCKET_COUNT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    public void record(long nanos) {
+        counts.getAndIncrement(indexOf(nanos));
+        long max = maxValue.get();
+        while (nanos > max && !maxValue.compareAndSet(max, nanos)) {
+            max = maxValue.get();
+        }
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public long getMaxValue() {
+        return maxValue.get();
+    }
+
+    /**
+     * @param percentile percentile in the range [0, 100]
+     * @return an upper bound of the value at the percentile, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(Math.max(percentile, 0), 100) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValueAt(i), getMaxValue());
+            }
+        }
+        return getMaxValue();
+    }
+}
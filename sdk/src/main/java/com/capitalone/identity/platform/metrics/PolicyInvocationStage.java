@@ -0,0 +1,32 @@
+package com.capitalone.identity.platform.metrics;
+
+/**
+ * Stages of a policy invocation whose latency is recorded through {@link PolicyLatencyRecorder}.
+ */
+public enum PolicyInvocationStage {
+
+    /**
+     * Resolving the requested address and version to a loaded policy version.
+     */
+    VERSION_RESOLUTION,
+
+    /**
+     * Validating the request and assembling the arguments passed to the engine.
+     */
+    ARGUMENT_PREPARATION,
+
+    /**
+     * Evaluating the policy in its engine.
+     */
+    ENGINE_EVALUATION,
+
+    /**
+     * Converting the engine output into the policy result.
+     */
+    RESULT_CONVERSION,
+
+    /**
+     * Compiling the runtime of a policy within an invocation, because it was loaded lazily or has been evicted.
+     */
+    RUNTIME_COMPILATION
+}
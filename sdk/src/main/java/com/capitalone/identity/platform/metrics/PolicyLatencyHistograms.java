@@ -0,0 +1,117 @@
+package com.capitalone.identity.platform.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * {@link PolicyLatencyRecorder} that keeps a {@link LatencyHistogram} per stage, policy name, patch version and dmn.
+ * <p>
+ * Histograms are found through nested maps keyed by the recorded strings and are created on first use, so recording
+ * allocates only the first time a key is seen and only stages that are recorded take memory. The histograms of a
+ * patch are dropped when it is unloaded. Hosts can read individual histograms or export {@link #snapshot()} to their
+ * own registry on a schedule.
+ */
+public class PolicyLatencyHistograms implements PolicyLatencyRecorder {
+
+    /**
+     * Stands in for a null patch version or dmn name, which concurrent maps cannot hold as keys.
+     */
+    private static final String NONE = "";
+
+    private static final PolicyInvocationStage[] STAGES = PolicyInvocationStage.values();
+
+    private final Map<String, Map<String, Map<String, AtomicReferenceArray<LatencyHistogram>>>> histograms =
+            new ConcurrentHashMap<>();
+
+    @Override
+    public void record(PolicyInvocationStage stage, String policyName, String patchVersion, String dmnName,
+                       long nanos) {
+        AtomicReferenceArray<LatencyHistogram> byStage = getOrCreate(policyName, patchVersion, dmnName);
+        LatencyHistogram histogram = byStage.get(stage.ordinal());
+        if (histogram == null) {
+            byStage.compareAndSet(stage.ordinal(), null, new LatencyHistogram());
+            histogram = byStage.get(stage.ordinal());
+        }
+        histogram.record(nanos);
+    }
+
+    /**
+     * @return the histogram for the key, or null if nothing has been recorded for it
+     */
+    public LatencyHistogram getHistogram(PolicyInvocationStage stage, String policyName, String patchVersion,
+                                         String dmnName) {
+        Map<String, Map<String, AtomicReferenceArray<LatencyHistogram>>> byPatch = histograms.get(policyName);
+        Map<String, AtomicReferenceArray<LatencyHistogram>> byDmn =
+                byPatch == null ? null : byPatch.get(keyOf(patchVersion));
+        AtomicReferenceArray<LatencyHistogram> byStage = byDmn == null ? null : byDmn.get(keyOf(dmnName));
+        return byStage == null ? null : byStage.get(stage.ordinal());
+    }
+
+    /**
+     * @return a summary of every histogram that has recorded at least one value
+     */
+    public List<PolicyLatencySnapshot> snapshot() {
+        List<PolicyLatencySnapshot> snapshots = new ArrayList<>();
+        histograms.forEach((policyName, byPatch) -> byPatch.forEach((patchVersion, byDmn) ->
+                byDmn.forEach((dmnName, byStage) -> {
+                    for (PolicyInvocationStage stage : STAGES) {
+                        LatencyHistogram histogram = byStage.get(stage.ordinal());
+                        long count = histogram == null ? 0 : histogram.getCount();
+                        if (count > 0) {
+                            snapshots.add(new PolicyLatencySnapshot(stage, policyName, valueOf(patchVersion),
+                                    valueOf(dmnName), count,
+                                    histogram.getValueAtPercentile(50),
+                                    histogram.getValueAtPercentile(99),
+                                    histogram.getValueAtPercentile(99.9),
+                                    histogram.getMaxValue()));
+                        }
+                    }
+                })));
+        return snapshots;
+    }
+
+    /**
+     * Drops every histogram of a policy name, e.g. once it is unloaded.
+     */
+    public void remove(String policyName) {
+        histograms.remove(policyName);
+    }
+
+    @Override
+    public void remove(String policyName, String patchVersion) {
+        histograms.computeIfPresent(policyName, (name, byPatch) -> {
+            byPatch.remove(keyOf(patchVersion));
+            return byPatch.isEmpty() ? null : byPatch;
+        });
+    }
+
+    private AtomicReferenceArray<LatencyHistogram> getOrCreate(String policyName, String patchVersion,
+                                                               String dmnName) {
+        Map<String, Map<String, AtomicReferenceArray<LatencyHistogram>>> byPatch = histograms.get(policyName);
+        if (byPatch == null) {
+            byPatch = histograms.computeIfAbsent(policyName, key -> new ConcurrentHashMap<>());
+        }
+        String patchKey = keyOf(patchVersion);
+        Map<String, AtomicReferenceArray<LatencyHistogram>> byDmn = byPatch.get(patchKey);
+        if (byDmn == null) {
+            byDmn = byPatch.computeIfAbsent(patchKey, key -> new ConcurrentHashMap<>());
+        }
+        String dmnKey = keyOf(dmnName);
+        AtomicReferenceArray<LatencyHistogram> byStage = byDmn.get(dmnKey);
+        if (byStage == null) {
+            byStage = byDmn.computeIfAbsent(dmnKey, key -> new AtomicReferenceArray<>(STAGES.length));
+        }
+        return byStage;
+    }
+
+    private static String keyOf(String value) {
+        return value == null ? NONE : value;
+    }
+
+    private static String valueOf(String key) {
+        return NONE.equals(key) ? null : key;
+    }
+}
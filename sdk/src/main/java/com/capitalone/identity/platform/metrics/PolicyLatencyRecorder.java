@@ -0,0 +1,40 @@
+package com.capitalone.identity.platform.metrics;
+
+/**
+ * Receives the latency of each stage of a policy invocation. Host applications can implement this to bridge
+ * measurements to their own metrics registry, or use {@link PolicyLatencyHistograms}.
+ * <p>
+ * Implementations are called on the invocation thread and must be thread-safe and cheap.
+ */
+public interface PolicyLatencyRecorder {
+
+    /**
+     * Records nothing. Runtimes skip taking timestamps entirely when this recorder is configured.
+     */
+    PolicyLatencyRecorder NOOP = (stage, policyName, patchVersion, dmnName, nanos) -> {
+    };
+
+    /**
+     * Policy name that version resolution latencies are recorded under when the requested address does not resolve,
+     * so that unknown addresses do not each get their own measurements.
+     */
+    String UNRESOLVED = "<unresolved>";
+
+    /**
+     * @param stage        invocation stage that was measured
+     * @param policyName   policy name, or {@link #UNRESOLVED} if the requested address did not resolve
+     * @param patchVersion patch version string (e.g. "1.0.2") or null if the version did not resolve
+     * @param dmnName      requested dmn, or null if the stage is not specific to one
+     * @param nanos        elapsed time in nanoseconds
+     */
+    void record(PolicyInvocationStage stage, String policyName, String patchVersion, String dmnName, long nanos);
+
+    /**
+     * Drops whatever was recorded for a patch, called once it is unloaded. Does nothing by default.
+     *
+     * @param policyName   policy name
+     * @param patchVersion patch version string (e.g. "1.0.2")
+     */
+    default void remove(String policyName, String patchVersion) {
+    }
+}
@@ -0,0 +1,16 @@
+package com.capitalone.identity.platform.metrics
+
+/**
+ * Point-in-time summary of one [LatencyHistogram] kept by [PolicyLatencyHistograms]. Latencies are in nanoseconds.
+ */
+data class PolicyLatencySnapshot(
+    val stage: PolicyInvocationStage,
+    val policyName: String,
+    val patchVersion: String?,
+    val dmnName: String?,
+    val count: Long,
+    val p50Nanos: Long,
+    val p99Nanos: Long,
+    val p999Nanos: Long,
+    val maxNanos: Long,
+)
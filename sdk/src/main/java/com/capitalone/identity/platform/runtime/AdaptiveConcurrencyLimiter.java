@@ -0,0 +1,149 @@
+package com.capitalone.identity.platform.runtime;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control for {@link PolicyInvoker} that adapts its concurrency limit to observed evaluation latency using
+ * additive-increase/multiplicative-decrease (AIMD).
+ * <p>
+ * Each evaluation that completes within the latency threshold while the limiter is at least half utilized raises the
+ * limit by one. An evaluation that exceeds the threshold, or is dropped (e.g. cancelled at its deadline), multiplies
+ * the limit by the backoff ratio. Only evaluations that started after the previous decrease can decrease it again, so
+ * a burst of slow evaluations admitted under the old limit backs off once rather than once per evaluation. Requests
+ * over the limit are shed immediately and never queue.
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long latencyThresholdNanos;
+
+    private final double backoffRatio;
+
+    private final AtomicInteger limit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final LongAdder shedCount = new LongAdder();
+
+    private volatile long lastDecreaseNanos = System.nanoTime();
+
+    /**
+     * Starts at a limit of 20 and adapts between 1 and 1000, backing off by 10%.
+     *
+     * @param latencyThreshold evaluation latency above which the limit is decreased
+     */
+    public AdaptiveConcurrencyLimiter(Duration latencyThreshold) {
+        this(20, 1, 1000, latencyThreshold, 0.9);
+    }
+
+    /**
+     * @param initialLimit     starting concurrency limit
+     * @param minLimit         lowest limit the limiter backs off to
+     * @param maxLimit         highest limit the limiter grows to
+     * @param latencyThreshold evaluation latency above which the limit is decreased
+     * @param backoffRatio     factor in (0, 1) applied to the limit on each decrease
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold,
+                                      double backoffRatio) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException(String.format(
+                    "limits must satisfy 1 <= min <= initial <= max [min=%s, initial=%s, max=%s]",
+                    minLimit, initialLimit, maxLimit));
+        }
+        if (!(backoffRatio > 0 && backoffRatio < 1)) {
+            throw new IllegalArgumentException("backoffRatio must be in (0, 1): " + backoffRatio);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.limit = new AtomicInteger(initialLimit);
+    }
+
+    /**
+     * @return true if the request is admitted, in which case {@link #release} must be called once it completes
+     */
+    boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit.get()) {
+                shedCount.increment();
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Admits as many of {@code permits} requests as the limit allows, counting the rest as shed.
+     *
+     * @return number of requests admitted, each of which must be {@link #release released} once it completes
+     */
+    int tryAcquire(int permits) {
+        int current;
+        int admitted;
+        do {
+            current = inFlight.get();
+            admitted = Math.max(0, Math.min(permits, limit.get() - current));
+            if (admitted == 0) {
+                break;
+            }
+        } while (!inFlight.compareAndSet(current, current + admitted));
+        shedCount.add(permits - admitted);
+        return admitted;
+    }
+
+    /**
+     * @param startNanos {@link System#nanoTime()} taken when the request was admitted
+     * @param dropped    true if the evaluation was abandoned, e.g. cancelled at its deadline
+     */
+    void release(long startNanos, boolean dropped) {
+        release(startNanos, System.nanoTime() - startNanos, dropped);
+    }
+
+    /**
+     * @param startNanos   {@link System#nanoTime()} taken when the request was admitted
+     * @param latencyNanos latency sample to adapt to, if it differs from the time since admission
+     * @param dropped      true if the evaluation was abandoned, e.g. cancelled at its deadline
+     */
+    void release(long startNanos, long latencyNanos, boolean dropped) {
+        final int utilization = inFlight.getAndDecrement();
+        if (dropped || latencyNanos > latencyThresholdNanos) {
+            if (startNanos - lastDecreaseNanos < 0) {
+                // admitted before the last decrease; its latency reflects the old limit
+                return;
+            }
+            lastDecreaseNanos = System.nanoTime();
+            limit.updateAndGet(current -> Math.max(minLimit, (int) (current * backoffRatio)));
+        } else if (utilization * 2 >= limit.get()) {
+            limit.updateAndGet(current -> Math.min(maxLimit, current + 1));
+        }
+    }
+
+    /**
+     * @return current concurrency limit
+     */
+    public int getLimit() {
+        return limit.get();
+    }
+
+    /**
+     * @return number of evaluations currently admitted
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return number of requests shed because the limit was reached
+     */
+    public long getShedCount() {
+        return shedCount.sum();
+    }
+}
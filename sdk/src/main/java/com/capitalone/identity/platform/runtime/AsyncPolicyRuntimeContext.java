@@ -0,0 +1,26 @@
+package com.capitalone.identity.platform.runtime;
+
+import com.capitalone.identity.identitybuilder.model.LogicalVersion;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Non-blocking counterpart of {@link PolicyRuntimeContext}. Implementations must not block the calling thread.
+ */
+public interface AsyncPolicyRuntimeContext<T, R> {
+
+    CompletableFuture<PolicyResult<R>> invokeAsync(LogicalVersion policyVersion, T request);
+
+    /**
+     * Adapts a synchronous context by running each invocation on the supplied executor. Cancelling a returned future
+     * skips the evaluation if it has not started yet, and {@code cancel(true)} interrupts it if it has.
+     */
+    static <T, R> AsyncPolicyRuntimeContext<T, R> of(PolicyRuntimeContext<T, R> context, Executor executor) {
+        Objects.requireNonNull(context);
+        Objects.requireNonNull(executor);
+        return (policyVersion, request) ->
+                CancellableInvocation.submit(() -> context.invoke(policyVersion, request), executor);
+    }
+}
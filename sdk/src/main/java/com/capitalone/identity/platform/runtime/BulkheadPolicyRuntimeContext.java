@@ -0,0 +1,113 @@
+package com.capitalone.identity.platform.runtime;
+
+import com.capitalone.identity.identitybuilder.model.LogicalVersion;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Decorates a runtime context with a {@link PolicyBulkhead}. Each invocation holds a permit of its policy's pools for
+ * as long as it runs; when the pool is exhausted the invocation fails immediately with
+ * {@link PolicyError#POLICY_CONCURRENCY_LIMIT_EXCEEDED} instead of queueing behind the slow policy.
+ * <p>
+ * Asynchronous invocations acquire their permit on the calling thread and run on the supplied executor, typically
+ * {@link PolicyExecutors#newInvocationExecutor()}, which uses a virtual thread per invocation where supported.
+ *
+ * @param <T> request type of the decorated context
+ * @param <R> result type of the decorated context
+ */
+public class BulkheadPolicyRuntimeContext<T, R> implements PolicyRuntimeContext<T, R>, AsyncPolicyRuntimeContext<T, R> {
+
+    private final PolicyRuntimeContext<T, R> context;
+
+    private final PolicyBulkhead bulkhead;
+
+    private final Executor executor;
+
+    private final Function<? super T, String> partitionKey;
+
+    public BulkheadPolicyRuntimeContext(PolicyRuntimeContext<T, R> context, PolicyBulkhead bulkhead,
+                                        Executor executor) {
+        this(context, bulkhead, executor, null);
+    }
+
+    /**
+     * @param context      context that evaluates policies
+     * @param bulkhead     permit pools to acquire from
+     * @param executor     executor that runs {@link #invokeAsync} evaluations
+     * @param partitionKey optional function that splits a policy's pool by request, e.g. by business event. If null,
+     *                     all requests to a policy share its pool.
+     */
+    public BulkheadPolicyRuntimeContext(PolicyRuntimeContext<T, R> context, PolicyBulkhead bulkhead,
+                                        Executor executor, Function<? super T, String> partitionKey) {
+        this.context = Objects.requireNonNull(context);
+        this.bulkhead = Objects.requireNonNull(bulkhead);
+        this.executor = Objects.requireNonNull(executor);
+        this.partitionKey = partitionKey;
+    }
+
+    @Override
+    public PolicyResult<R> invoke(LogicalVersion policyVersion, T request) {
+        PolicyBulkhead.Permit permit = tryAcquire(policyVersion, request);
+        if (permit == null) {
+            return newRejectedResult(policyVersion);
+        }
+        try {
+            return context.invoke(policyVersion, request);
+        } finally {
+            permit.release();
+        }
+    }
+
+    /**
+     * A batch runs on a single thread, so when requests are not partitioned it holds a single permit and is passed to
+     * the decorated context as a whole.
+     */
+    @Override
+    public List<PolicyResult<R>> invokeAll(LogicalVersion policyVersion, List<T> requests) {
+        if (partitionKey != null) {
+            return PolicyRuntimeContext.super.invokeAll(policyVersion, requests);
+        }
+        PolicyBulkhead.Permit permit = bulkhead.tryAcquire(policyVersion.getName(), null);
+        if (permit == null) {
+            return Collections.nCopies(requests.size(), newRejectedResult(policyVersion));
+        }
+        try {
+            return context.invokeAll(policyVersion, requests);
+        } finally {
+            permit.release();
+        }
+    }
+
+    @Override
+    public CompletableFuture<PolicyResult<R>> invokeAsync(LogicalVersion policyVersion, T request) {
+        PolicyBulkhead.Permit permit = tryAcquire(policyVersion, request);
+        if (permit == null) {
+            return CompletableFuture.completedFuture(newRejectedResult(policyVersion));
+        }
+        try {
+            // the permit is held until the executor is done with the task, even if the future is cancelled earlier
+            return CancellableInvocation.submit(() -> context.invoke(policyVersion, request), executor,
+                    permit::release);
+        } catch (RuntimeException e) {
+            // executor rejected the task, so it will never release the permit
+            permit.release();
+            throw e;
+        }
+    }
+
+    private PolicyBulkhead.Permit tryAcquire(LogicalVersion policyVersion, T request) {
+        return bulkhead.tryAcquire(policyVersion.getName(), partitionKey == null ? null : partitionKey.apply(request));
+    }
+
+    private PolicyResult<R> newRejectedResult(LogicalVersion policyVersion) {
+        PolicyErrorInfo errorInfo = new PolicyErrorInfo(PolicyError.POLICY_CONCURRENCY_LIMIT_EXCEEDED,
+                String.format("Concurrency limit of %s reached for policy '%s'.",
+                        bulkhead.getLimit(policyVersion.getName()), policyVersion.getName()));
+        return new PolicyResult.Failure<>(errorInfo);
+    }
+}
@@ -0,0 +1,113 @@
+package com.capitalone.identity.platform.runtime;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Future of an evaluation submitted to an executor that, unlike {@link CompletableFuture#supplyAsync}, can actually be
+ * cancelled: a task cancelled before it starts never evaluates, and {@code cancel(true)} interrupts the thread running
+ * a started task.
+ */
+final class CancellableInvocation<R> extends CompletableFuture<R> implements Runnable {
+
+    private final Supplier<R> supplier;
+
+    private final ExitListener onExit;
+
+    /**
+     * Thread running {@link #supplier}, guarded by {@code this}.
+     */
+    private Thread runner;
+
+    /**
+     * Action run on the executor thread once a task is done with it.
+     */
+    interface ExitListener {
+
+        /**
+         * @param cancelled true if the future was cancelled before the task finished, e.g. at a deadline
+         */
+        void exited(boolean cancelled);
+    }
+
+    private CancellableInvocation(Supplier<R> supplier, ExitListener onExit) {
+        this.supplier = Objects.requireNonNull(supplier);
+        this.onExit = onExit;
+    }
+
+    static <R> CancellableInvocation<R> submit(Supplier<R> supplier, Executor executor) {
+        return submit(supplier, executor, null);
+    }
+
+    /**
+     * @param onExit optional action run on the executor thread once the task is done with it, whether or not the task
+     *               was cancelled before it started. Runs before the future is completed.
+     */
+    static <R> CancellableInvocation<R> submit(Supplier<R> supplier, Executor executor, Runnable onExit) {
+        return submitObserved(supplier, executor, onExit == null ? null : cancelled -> onExit.run());
+    }
+
+    /**
+     * Same as {@link #submit(Supplier, Executor, Runnable)}, with an action that is also told whether the future was
+     * cancelled before the task finished.
+     */
+    static <R> CancellableInvocation<R> submitObserved(Supplier<R> supplier, Executor executor,
+                                                       ExitListener onExit) {
+        CancellableInvocation<R> invocation = new CancellableInvocation<>(supplier, onExit);
+        executor.execute(invocation);
+        return invocation;
+    }
+
+    @Override
+    public void run() {
+        R result = null;
+        Throwable failure = null;
+        boolean evaluated = false;
+        try {
+            // skip tasks cancelled while queued
+            if (!isDone()) {
+                synchronized (this) {
+                    runner = Thread.currentThread();
+                }
+                try {
+                    result = supplier.get();
+                    evaluated = true;
+                } catch (Throwable e) {
+                    failure = e;
+                } finally {
+                    synchronized (this) {
+                        runner = null;
+                    }
+                    // clear an interrupt aimed at this task so it does not leak into the executor's next task
+                    Thread.interrupted();
+                }
+            }
+        } finally {
+            if (onExit != null) {
+                // not completed yet by this task, so done means cancelled
+                onExit.exited(isCancelled());
+            }
+        }
+        // complete after onExit so that dependents observe its effects
+        if (failure != null) {
+            completeExceptionally(failure);
+        } else if (evaluated) {
+            complete(result);
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled && mayInterruptIfRunning) {
+            synchronized (this) {
+                if (runner != null) {
+                    runner.interrupt();
+                }
+            }
+        }
+        return cancelled;
+    }
+}
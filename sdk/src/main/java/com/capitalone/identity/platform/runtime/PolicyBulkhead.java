@@ -0,0 +1,166 @@
+package com.capitalone.identity.platform.runtime;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded permit pools that isolate policies from each other. Each policy gets its own pool, so a slow policy can
+ * exhaust only its own permits. Permits are never waited for: a call over the limit is rejected immediately.
+ * <p>
+ * Partitions (e.g. business event) come from request data, so they are not given a pool each. Instead, each policy has
+ * a fixed number of partition pools, and a partition is hashed to one of them. Distinct partitions may share a pool,
+ * but the number of pools stays bounded however many partition values requests carry. The policy's limit is split
+ * evenly across its partition pools, rounded up, and every call also holds a permit of the policy's own pool, so
+ * partitioned or not, a policy never runs more than its limit of calls at once.
+ */
+public final class PolicyBulkhead {
+
+    /**
+     * Default number of partition pools per policy.
+     */
+    public static final int DEFAULT_PARTITION_STRIPES = 16;
+
+    private final int maxConcurrentCalls;
+
+    private final Map<String, Integer> policyLimits;
+
+    private final int partitionStripes;
+
+    /**
+     * Permits by policy name: index 0 holds only the policy's pool, then one per partition stripe that also holds the
+     * stripe's pool.
+     */
+    private final Map<String, AtomicReferenceArray<Permit>> permits = new ConcurrentHashMap<>();
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * @param maxConcurrentCalls maximum concurrent calls allowed for each policy
+     */
+    public PolicyBulkhead(int maxConcurrentCalls) {
+        this(maxConcurrentCalls, Collections.emptyMap());
+    }
+
+    /**
+     * @param maxConcurrentCalls maximum concurrent calls allowed for each policy not listed in {@code policyLimits}
+     * @param policyLimits       maximum concurrent calls by policy name, for hot or slow policies that need a pool
+     *                           of a different size
+     */
+    public PolicyBulkhead(int maxConcurrentCalls, Map<String, Integer> policyLimits) {
+        this(maxConcurrentCalls, policyLimits, DEFAULT_PARTITION_STRIPES);
+    }
+
+    /**
+     * @param partitionStripes number of partition pools per policy; each has an equal share of the policy's limit,
+     *                         rounded up
+     * @see #PolicyBulkhead(int, Map)
+     */
+    public PolicyBulkhead(int maxConcurrentCalls, Map<String, Integer> policyLimits, int partitionStripes) {
+        if (partitionStripes < 1) {
+            throw new IllegalArgumentException("partitionStripes must be positive: " + partitionStripes);
+        }
+        if (maxConcurrentCalls < 1) {
+            throw new IllegalArgumentException("maxConcurrentCalls must be positive: " + maxConcurrentCalls);
+        }
+        Objects.requireNonNull(policyLimits).forEach((policyName, limit) -> {
+            if (limit == null || limit < 1) {
+                throw new IllegalArgumentException(
+                        String.format("limit must be positive [policy=%s, limit=%s]", policyName, limit));
+            }
+        });
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.policyLimits = new HashMap<>(policyLimits);
+        this.partitionStripes = partitionStripes;
+    }
+
+    /**
+     * @param policyName policy name
+     * @param partition  optional sub-key, e.g. business event; null to acquire from the policy's pool only
+     * @return the acquired permit, to be released once the call is done, or null if a permit was not available
+     */
+    Permit tryAcquire(String policyName, String partition) {
+        AtomicReferenceArray<Permit> policyPermits = permits.get(policyName);
+        if (policyPermits == null) {
+            policyPermits = permits.computeIfAbsent(policyName, this::newPolicyPermits);
+        }
+        int index = partition == null ? 0 : 1 + Math.floorMod(partition.hashCode(), partitionStripes);
+        Permit permit = policyPermits.get(index);
+        if (permit == null) {
+            int limit = getLimit(policyName);
+            policyPermits.compareAndSet(index, null, new Permit(policyPermits.get(0).policyPool,
+                    new Semaphore((limit + partitionStripes - 1) / partitionStripes)));
+            permit = policyPermits.get(index);
+        }
+        if (permit.tryAcquire()) {
+            return permit;
+        }
+        rejectedCount.increment();
+        return null;
+    }
+
+    private AtomicReferenceArray<Permit> newPolicyPermits(String policyName) {
+        AtomicReferenceArray<Permit> policyPermits = new AtomicReferenceArray<>(partitionStripes + 1);
+        policyPermits.set(0, new Permit(new Semaphore(getLimit(policyName)), null));
+        return policyPermits;
+    }
+
+    /**
+     * @return maximum concurrent calls allowed for the policy
+     */
+    public int getLimit(String policyName) {
+        return policyLimits.getOrDefault(policyName, maxConcurrentCalls);
+    }
+
+    /**
+     * @return number of calls rejected because a pool had no permits left
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * A permit of a policy's pool and, for partitioned calls, of a partition pool. Instances are shared by every call
+     * to the same pools, so acquiring allocates nothing.
+     */
+    static final class Permit {
+
+        private final Semaphore policyPool;
+
+        /**
+         * Null for calls without a partition.
+         */
+        private final Semaphore partitionPool;
+
+        private Permit(Semaphore policyPool, Semaphore partitionPool) {
+            this.policyPool = policyPool;
+            this.partitionPool = partitionPool;
+        }
+
+        private boolean tryAcquire() {
+            if (partitionPool != null && !partitionPool.tryAcquire()) {
+                return false;
+            }
+            if (policyPool.tryAcquire()) {
+                return true;
+            }
+            if (partitionPool != null) {
+                partitionPool.release();
+            }
+            return false;
+        }
+
+        void release() {
+            policyPool.release();
+            if (partitionPool != null) {
+                partitionPool.release();
+            }
+        }
+    }
+
+}
@@ -5,6 +5,9 @@ enum class PolicyError(val id: String, val text: String = id) {
     BAD_REQUEST_PARAMETER_RESERVED_PREFIX("787400", "Reserved parameter prefix used in request body key."),
     BAD_REQUEST_MISSING_DMN_FILE("787401", "Requested dmn file not found."),
     POLICY_EXECUTION_ERROR("787200", "Error during policy execution."),
+    POLICY_CONCURRENCY_LIMIT_EXCEEDED("787429", "Policy concurrency limit exceeded."),
+    POLICY_DEADLINE_EXCEEDED("787408", "Policy invocation deadline exceeded."),
+    POLICY_OVERLOADED("787503", "Policy invocation shed due to overload."),
     BAD_REQUEST_MISSING_CONFIG("788401", "Requested config could not be found");
 
     companion object {
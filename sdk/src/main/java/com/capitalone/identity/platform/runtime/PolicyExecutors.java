@@ -0,0 +1,93 @@
+package com.capitalone.identity.platform.runtime;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factory methods for executors suitable for running policy invocations off the caller's thread, and for loading
+ * policies in parallel.
+ * <p>
+ * This library targets Java 17, so virtual threads are looked up at run time and are only available when the host
+ * application runs on Java 21 or later.
+ */
+public final class PolicyExecutors {
+
+    private static final MethodHandle NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findVirtualThreadPerTaskExecutor();
+
+    private PolicyExecutors() {
+    }
+
+    private static MethodHandle findVirtualThreadPerTaskExecutor() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the running JVM supports {@link #newVirtualThreadPerTaskExecutor()}
+     */
+    public static boolean isVirtualThreadSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * @return an executor that starts a new virtual thread for each task
+     * @throws UnsupportedOperationException if the running JVM does not support virtual threads
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR == null) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later.");
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not create virtual thread executor.", e);
+        }
+    }
+
+    /**
+     * @return a virtual-thread-per-task executor if supported, otherwise a fixed pool of daemon threads sized to the
+     * available processors (policy evaluation is CPU bound)
+     */
+    public static ExecutorService newInvocationExecutor() {
+        if (isVirtualThreadSupported()) {
+            return newVirtualThreadPerTaskExecutor();
+        }
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                newDaemonThreadFactory("policy-invoker-"));
+    }
+
+    /**
+     * @return a fixed pool of daemon threads sized to the available processors, for compiling independent policies
+     * in parallel (see {@code PolicyLoadManager})
+     */
+    public static ExecutorService newLoadExecutor() {
+        return newLoadExecutor(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism maximum number of policies loaded at the same time
+     */
+    public static ExecutorService newLoadExecutor(int parallelism) {
+        return Executors.newFixedThreadPool(parallelism, newDaemonThreadFactory("policy-loader-"));
+    }
+
+    static ThreadFactory newDaemonThreadFactory(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
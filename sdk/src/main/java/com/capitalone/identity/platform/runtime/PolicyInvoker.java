@@ -1,8 +1,19 @@
 package com.capitalone.identity.platform.runtime;
 
 import com.capitalone.identity.identitybuilder.model.LogicalVersion;
+import com.capitalone.identity.platform.metrics.PolicyInvocationStage;
+import com.capitalone.identity.platform.metrics.PolicyLatencyRecorder;
+import com.capitalone.identity.platform.versioning.PolicyVersionCatalog;
 import com.capitalone.identity.platform.versioning.PolicyVersionService;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+
 /**
  * Common entry point for all policy invocations.
  *
@@ -15,27 +26,369 @@ public class PolicyInvoker<S, T> {
 
     final PolicyVersionService versionService;
 
+    final Executor invocationExecutor;
+
+    final AsyncPolicyRuntimeContext<S, T> asyncContext;
+
+    final PolicyLatencyRecorder latencyRecorder;
+
+    final AdaptiveConcurrencyLimiter concurrencyLimiter;
+
     public PolicyInvoker(PolicyRuntimeContext<S, T> context,
                          PolicyVersionService versionService) {
-        this.context = context;
-        this.versionService = versionService;
+        this(context, versionService, new Options());
+    }
+
+    /**
+     * @param context        runtime context that evaluates policies. If it also implements
+     *                       {@link AsyncPolicyRuntimeContext} then its own async implementation is used by
+     *                       {@link #invokeAsync}.
+     * @param versionService version service used to resolve requested policy versions
+     * @param options        optional invocation features; read once, so later changes to it have no effect
+     */
+    @SuppressWarnings("unchecked")
+    public PolicyInvoker(PolicyRuntimeContext<S, T> context,
+                         PolicyVersionService versionService,
+                         Options options) {
+        this.latencyRecorder = Objects.requireNonNull(options.latencyRecorder);
+        this.concurrencyLimiter = options.concurrencyLimiter;
+        this.context = Objects.requireNonNull(context);
+        this.versionService = Objects.requireNonNull(versionService);
+        this.invocationExecutor = options.invocationExecutor != null
+                ? options.invocationExecutor
+                : new DefaultExecutor();
+        if (context instanceof AsyncPolicyRuntimeContext) {
+            this.asyncContext = (AsyncPolicyRuntimeContext<S, T>) context;
+        } else {
+            this.asyncContext = AsyncPolicyRuntimeContext.of(context, this.invocationExecutor);
+        }
+    }
+
+    /**
+     * Optional features of a {@link PolicyInvoker}. Every feature is off by default.
+     */
+    public static final class Options {
+
+        private Executor invocationExecutor;
+
+        private PolicyLatencyRecorder latencyRecorder = PolicyLatencyRecorder.NOOP;
+
+        private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+        /**
+         * @param invocationExecutor executor that runs {@link #invokeAsync} evaluations for synchronous contexts and
+         *                           parallel {@link #invokeAll} chunks, e.g.
+         *                           {@link PolicyExecutors#newVirtualThreadPerTaskExecutor()}. If null, a shared
+         *                           {@link PolicyExecutors#newInvocationExecutor()} is used.
+         */
+        public Options invocationExecutor(Executor invocationExecutor) {
+            this.invocationExecutor = invocationExecutor;
+            return this;
+        }
+
+        /**
+         * @param latencyRecorder receives {@link PolicyInvocationStage#VERSION_RESOLUTION} latencies, keyed by the
+         *                        resolved policy name and patch version (or
+         *                        {@link PolicyLatencyRecorder#UNRESOLVED} if the address does not resolve)
+         */
+        public Options latencyRecorder(PolicyLatencyRecorder latencyRecorder) {
+            this.latencyRecorder = Objects.requireNonNull(latencyRecorder);
+            return this;
+        }
+
+        /**
+         * @param concurrencyLimiter admission control applied to every evaluation. Requests over its limit are not
+         *                           evaluated and complete with {@link PolicyResultHandler#createShedResponse}. Null
+         *                           admits every request.
+         */
+        public Options concurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+            this.concurrencyLimiter = concurrencyLimiter;
+            return this;
+        }
+    }
+
+    /**
+     * Delegates to a shared executor that is created on first use, so hosts which only use synchronous invocation
+     * never start executor threads.
+     */
+    private static final class DefaultExecutor implements Executor {
+        private static final class Holder {
+            static final Executor EXECUTOR = PolicyExecutors.newInvocationExecutor();
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            Holder.EXECUTOR.execute(command);
+        }
+    }
+
+    /**
+     * Runs deadline timers. Timers only cancel futures, so a single thread is enough.
+     */
+    private static final class DeadlineScheduler {
+        static final ScheduledExecutorService SCHEDULER = newScheduler();
+
+        private static ScheduledExecutorService newScheduler() {
+            ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+                    PolicyExecutors.newDaemonThreadFactory("policy-deadline-"));
+            // timers of invocations that finish in time are dropped rather than retained until they expire
+            scheduler.setRemoveOnCancelPolicy(true);
+            return scheduler;
+        }
     }
 
     /**
      * @param <R> return type defined by the API host application
      */
     public <R> R invoke(String address, String version, S request, PolicyResultHandler<T, R> handler) {
-        LogicalVersion policy = versionService.getPolicyVersion(address, version);
+        PolicyVersionCatalog catalog = versionService.getCatalog();
+        LogicalVersion policy = resolve(catalog, address, version);
         if (policy == null) {
             return handler.createResponseForMissingPolicy(address, version);
         } else {
-            PolicyRequestInfo requestInfo = new PolicyRequestInfo(address, version, policy);
-            PolicyResult<T> result = context.invoke(policy, request);
-            if (result.getErrorInfo() == null) {
-                return handler.createSuccessResponse(requestInfo, result.getResult());
+            PolicyRequestInfo requestInfo = new PolicyRequestInfo(address, version, policy, catalog.getGeneration());
+            if (concurrencyLimiter == null) {
+                return createResponse(requestInfo, context.invoke(policy, request), handler);
+            }
+            if (!concurrencyLimiter.tryAcquire()) {
+                return handler.createShedResponse(requestInfo);
+            }
+            final long start = System.nanoTime();
+            PolicyResult<T> result;
+            try {
+                result = context.invoke(policy, request);
+            } finally {
+                concurrencyLimiter.release(start, false);
+            }
+            return createResponse(requestInfo, result, handler);
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #invoke}. Version resolution happens on the calling thread; evaluation happens on
+     * the invocation executor (or the context's own async implementation) and the handler is applied on completion.
+     * Reactive hosts can adapt the result with {@code Mono.fromFuture(...)}.
+     *
+     * @param <R> return type defined by the API host application
+     */
+    public <R> CompletableFuture<R> invokeAsync(String address, String version, S request,
+                                                PolicyResultHandler<T, R> handler) {
+        PolicyVersionCatalog catalog = versionService.getCatalog();
+        LogicalVersion policy = resolve(catalog, address, version);
+        if (policy == null) {
+            return CompletableFuture.completedFuture(handler.createResponseForMissingPolicy(address, version));
+        } else {
+            PolicyRequestInfo requestInfo = new PolicyRequestInfo(address, version, policy, catalog.getGeneration());
+            if (concurrencyLimiter != null && !concurrencyLimiter.tryAcquire()) {
+                return CompletableFuture.completedFuture(handler.createShedResponse(requestInfo));
+            }
+            return evaluateAsync(policy, request)
+                    .thenApply(result -> createResponse(requestInfo, result, handler));
+        }
+    }
+
+    /**
+     * Deadline-aware variant of {@link #invoke}. The evaluation runs on the invocation executor and the caller waits at
+     * most until {@code deadline}. A request already past its deadline is not evaluated, and an evaluation still
+     * running at the deadline is cancelled (see {@link #invokeAsync(String, String, Object, PolicyResultHandler,
+     * Instant)}). Both cases are reported through {@link PolicyResultHandler#createTimeoutResponse}.
+     *
+     * @param <R> return type defined by the API host application
+     */
+    public <R> R invoke(String address, String version, S request, PolicyResultHandler<T, R> handler,
+                        Instant deadline) {
+        try {
+            return invokeAsync(address, version, request, handler, deadline).join();
+        } catch (CompletionException e) {
+            // surface evaluation errors the same way the deadline-free path does
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Deadline-aware variant of {@link #invokeAsync(String, String, Object, PolicyResultHandler)}. A request already
+     * past its deadline completes immediately without being evaluated. Otherwise the evaluation is cancelled when the
+     * deadline passes: it is skipped if it has not started, and its thread is interrupted if it has. Both cases
+     * complete with {@link PolicyResultHandler#createTimeoutResponse}.
+     *
+     * @param deadline instant by which the response is needed
+     * @param <R>      return type defined by the API host application
+     */
+    public <R> CompletableFuture<R> invokeAsync(String address, String version, S request,
+                                                PolicyResultHandler<T, R> handler, Instant deadline) {
+        Objects.requireNonNull(deadline);
+        PolicyVersionCatalog catalog = versionService.getCatalog();
+        LogicalVersion policy = resolve(catalog, address, version);
+        if (policy == null) {
+            return CompletableFuture.completedFuture(handler.createResponseForMissingPolicy(address, version));
+        }
+        PolicyRequestInfo requestInfo = new PolicyRequestInfo(address, version, policy, catalog.getGeneration());
+        long remainingNanos = Duration.between(Instant.now(), deadline).toNanos();
+        if (remainingNanos <= 0) {
+            return CompletableFuture.completedFuture(handler.createTimeoutResponse(requestInfo));
+        }
+        if (concurrencyLimiter != null && !concurrencyLimiter.tryAcquire()) {
+            return CompletableFuture.completedFuture(handler.createShedResponse(requestInfo));
+        }
+        CompletableFuture<PolicyResult<T>> evaluation = evaluateAsync(policy, request);
+        ScheduledFuture<?> timer = DeadlineScheduler.SCHEDULER.schedule(
+                () -> evaluation.cancel(true), remainingNanos, TimeUnit.NANOSECONDS);
+        return evaluation.handle((result, error) -> {
+            timer.cancel(false);
+            if (error == null) {
+                return createResponse(requestInfo, result, handler);
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause()
+                    : error;
+            if (cause instanceof CancellationException) {
+                return handler.createTimeoutResponse(requestInfo);
+            }
+            throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+        });
+    }
+
+    /**
+     * Evaluates a list of requests against one policy version on the calling thread. The version is resolved once and
+     * the runtime context can share per-policy state across the list (see {@link PolicyRuntimeContext#invokeAll}).
+     *
+     * @param <R> return type defined by the API host application
+     * @return one response per request, in request order
+     */
+    public <R> List<R> invokeAll(String address, String version, List<S> requests, PolicyResultHandler<T, R> handler) {
+        return invokeAll(address, version, requests, handler, 1);
+    }
+
+    /**
+     * Same as {@link #invokeAll(String, String, List, PolicyResultHandler)}, with the list split into at most
+     * {@code parallelism} contiguous chunks that are evaluated concurrently on the invocation executor.
+     *
+     * @param parallelism maximum number of chunks to evaluate concurrently; 1 evaluates on the calling thread
+     * @param <R>         return type defined by the API host application
+     * @return one response per request, in request order
+     */
+    public <R> List<R> invokeAll(String address, String version, List<S> requests, PolicyResultHandler<T, R> handler,
+                                 int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        PolicyVersionCatalog catalog = versionService.getCatalog();
+        LogicalVersion policy = resolve(catalog, address, version);
+        if (policy == null) {
+            return Collections.nCopies(requests.size(), handler.createResponseForMissingPolicy(address, version));
+        }
+        PolicyRequestInfo requestInfo = new PolicyRequestInfo(address, version, policy, catalog.getGeneration());
+        // every request takes its own permit; requests past the admitted prefix are shed
+        final int admitted = concurrencyLimiter != null ? concurrencyLimiter.tryAcquire(requests.size())
+                : requests.size();
+        final List<S> admittedRequests = requests.subList(0, admitted);
+        final long start = System.nanoTime();
+        List<PolicyResult<T>> results;
+        try {
+            results = admitted == 0 ? Collections.emptyList()
+                    : parallelism == 1 || admitted < 2
+                    ? context.invokeAll(policy, admittedRequests)
+                    : invokeAllParallel(policy, admittedRequests, parallelism);
+        } finally {
+            if (concurrencyLimiter != null && admitted > 0) {
+                // sample the per-request latency so batches do not read as slow evaluations
+                long latency = (System.nanoTime() - start) / admitted;
+                for (int i = 0; i < admitted; i++) {
+                    concurrencyLimiter.release(start, latency, false);
+                }
+            }
+        }
+        List<R> responses = new ArrayList<>(requests.size());
+        for (PolicyResult<T> result : results) {
+            responses.add(createResponse(requestInfo, result, handler));
+        }
+        for (int i = admitted; i < requests.size(); i++) {
+            responses.add(handler.createShedResponse(requestInfo));
+        }
+        return responses;
+    }
+
+    private List<PolicyResult<T>> invokeAllParallel(LogicalVersion policy, List<S> requests, int parallelism) {
+        final int chunkCount = Math.min(parallelism, requests.size());
+        final int chunkSize = (requests.size() + chunkCount - 1) / chunkCount;
+        List<CompletableFuture<List<PolicyResult<T>>>> chunks = new ArrayList<>(chunkCount);
+        for (int from = 0; from < requests.size(); from += chunkSize) {
+            List<S> chunk = requests.subList(from, Math.min(requests.size(), from + chunkSize));
+            chunks.add(CompletableFuture.supplyAsync(() -> context.invokeAll(policy, chunk), invocationExecutor));
+        }
+        List<PolicyResult<T>> results = new ArrayList<>(requests.size());
+        try {
+            for (CompletableFuture<List<PolicyResult<T>>> chunk : chunks) {
+                results.addAll(chunk.join());
+            }
+        } catch (CompletionException e) {
+            // surface evaluation errors the same way the sequential path does
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    /**
+     * Starts an asynchronous evaluation that was admitted by the concurrency limiter, if any, and releases its permit
+     * once the evaluation is over. A cancelled evaluation counts as dropped.
+     * <p>
+     * Evaluations of a synchronous context release the permit when the executor thread leaves the task, so a call
+     * cancelled at its deadline keeps counting as in flight while its evaluation is still running. The threads of a
+     * context with its own async implementation cannot be observed, so those release when the future completes.
+     */
+    private CompletableFuture<PolicyResult<T>> evaluateAsync(LogicalVersion policy, S request) {
+        if (concurrencyLimiter == null) {
+            return asyncContext.invokeAsync(policy, request);
+        }
+        final long start = System.nanoTime();
+        CompletableFuture<PolicyResult<T>> evaluation;
+        try {
+            if (context instanceof AsyncPolicyRuntimeContext) {
+                evaluation = asyncContext.invokeAsync(policy, request);
             } else {
-                return handler.createErrorResponse(requestInfo, result.getErrorInfo());
+                return CancellableInvocation.submitObserved(() -> context.invoke(policy, request),
+                        invocationExecutor, cancelled -> concurrencyLimiter.release(start, cancelled));
             }
+        } catch (RuntimeException e) {
+            // not started, so the permit would never be released
+            concurrencyLimiter.release(start, true);
+            throw e;
+        }
+        evaluation.whenComplete((result, error) ->
+                concurrencyLimiter.release(start, error instanceof CancellationException));
+        return evaluation;
+    }
+
+    private LogicalVersion resolve(PolicyVersionCatalog catalog, String address, String version) {
+        if (latencyRecorder == PolicyLatencyRecorder.NOOP) {
+            return catalog.getPolicyVersion(address, version);
+        }
+        final long start = System.nanoTime();
+        LogicalVersion policy = catalog.getPolicyVersion(address, version);
+        final long elapsed = System.nanoTime() - start;
+        if (policy == null) {
+            // not keyed by the address, which callers control
+            latencyRecorder.record(PolicyInvocationStage.VERSION_RESOLUTION, PolicyLatencyRecorder.UNRESOLVED,
+                    null, null, elapsed);
+        } else {
+            latencyRecorder.record(PolicyInvocationStage.VERSION_RESOLUTION, policy.getName(),
+                    policy.getPatchVersionString(), null, elapsed);
+        }
+        return policy;
+    }
+
+    private static <T, R> R createResponse(PolicyRequestInfo requestInfo, PolicyResult<T> result,
+                                           PolicyResultHandler<T, R> handler) {
+        if (result.getErrorInfo() == null) {
+            return handler.createSuccessResponse(requestInfo, result.getResult());
+        } else {
+            return handler.createErrorResponse(requestInfo, result.getErrorInfo());
         }
     }
 }
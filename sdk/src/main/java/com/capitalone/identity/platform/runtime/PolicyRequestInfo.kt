@@ -2,8 +2,13 @@ package com.capitalone.identity.platform.runtime
 
 import com.capitalone.identity.identitybuilder.model.LogicalVersion
 
-data class PolicyRequestInfo(
+data class PolicyRequestInfo @JvmOverloads constructor(
     val requestedPolicyAddress: String,
     val requestedPolicyVersion: String,
-    val policy: LogicalVersion
+    val policy: LogicalVersion,
+    /**
+     * Generation of the version catalog that resolved [policy]
+     * (see [com.capitalone.identity.platform.versioning.PolicyVersionCatalog.getGeneration])
+     */
+    val catalogGeneration: Long = 0,
 )
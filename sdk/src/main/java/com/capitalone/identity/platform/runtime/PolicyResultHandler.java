@@ -6,6 +6,8 @@ package com.capitalone.identity.platform.runtime;
  *     <li>Successful invocation of the policy with no errors</li>
  *     <li>Policy invoked but there was an error</li>
  *     <li>Policy was missing and could not be invoked</li>
+ *     <li>Policy invocation did not complete before its deadline</li>
+ *     <li>Policy invocation was shed by admission control</li>
  * </ol>
  *
  * @param <T> result of a policy invocation defined by implementation of {@link PolicyRuntimeContext}
@@ -23,4 +25,23 @@ public interface PolicyResultHandler<T, R> {
     R createSuccessResponse(PolicyRequestInfo requestInfo, T policyInvocationResult);
 
     R createErrorResponse(PolicyRequestInfo requestInfo, PolicyErrorInfo errorInfo);
+
+    /**
+     * Called instead of the other methods when a deadline-aware invocation was refused or abandoned because its
+     * deadline passed. Defaults to an error response with {@link PolicyError#POLICY_DEADLINE_EXCEEDED}.
+     */
+    default R createTimeoutResponse(PolicyRequestInfo requestInfo) {
+        return createErrorResponse(requestInfo, new PolicyErrorInfo(PolicyError.POLICY_DEADLINE_EXCEEDED,
+                "Policy invocation did not complete before its deadline."));
+    }
+
+    /**
+     * Called instead of the other methods when admission control sheds the request before it is evaluated, so the
+     * host can cheaply return e.g. 429 or 503. Defaults to an error response with
+     * {@link PolicyError#POLICY_OVERLOADED}.
+     */
+    default R createShedResponse(PolicyRequestInfo requestInfo) {
+        return createErrorResponse(requestInfo, new PolicyErrorInfo(PolicyError.POLICY_OVERLOADED,
+                "Policy invocation was shed because the concurrency limit was reached."));
+    }
 }
@@ -2,7 +2,24 @@ package com.capitalone.identity.platform.runtime;
 
 import com.capitalone.identity.identitybuilder.model.LogicalVersion;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface PolicyRuntimeContext<T, R> {
 
     PolicyResult<R> invoke(LogicalVersion policyVersion, T request);
+
+    /**
+     * Evaluates every request against the same policy version. Implementations should override this to look up
+     * per-policy state once for the whole list rather than once per request.
+     *
+     * @return one result per request, in request order
+     */
+    default List<PolicyResult<R>> invokeAll(LogicalVersion policyVersion, List<T> requests) {
+        List<PolicyResult<R>> results = new ArrayList<>(requests.size());
+        for (T request : requests) {
+            results.add(invoke(policyVersion, request));
+        }
+        return results;
+    }
 }
@@ -5,6 +5,11 @@ import com.capitalone.identity.identitybuilder.model.PolicyInfo
 
 /**
  * Immutable, comparable, and null-safe implementation of [PolicyInfo.Patch]
+ *
+ * Major, minor and patch versions are also packed into one [Long] so that ordering by [packedVersion] is semantic
+ * version ordering. Versions with a component outside of `0..2^21-1` cannot be packed; they are still valid, and are
+ * compared by their components instead. Policy names are interned by [create], so that every version of a policy
+ * converted from loaded entities shares one name instance.
  */
 data class PolicyDataObject(
     private val policyMinorVersion: Int,
@@ -13,14 +18,54 @@ data class PolicyDataObject(
     private val policyFullName: String,
 ) : LogicalVersion {
 
+    /**
+     * The version packed by [pack], or [UNPACKED] if a component is out of range
+     */
+    val packedVersion: Long = pack(policyMajorVersion, policyMinorVersion, policyPatchVersion)
+
     companion object {
+        private const val COMPONENT_BITS = 21
+        private const val MAX_COMPONENT = (1 shl COMPONENT_BITS) - 1
+
+        /**
+         * [packedVersion] of a version that cannot be packed
+         */
+        const val UNPACKED = -1L
+
         @JvmStatic
-        fun create(info: LogicalVersion) = PolicyDataObject(
+        fun create(info: LogicalVersion) = if (info is PolicyDataObject) info else PolicyDataObject(
             info.minorVersion,
             info.majorVersion,
             info.patchVersion,
-            info.name,
+            info.name.intern(),
         );
+
+        /**
+         * @return the version packed as `major | minor | patch` with [COMPONENT_BITS] bits per component, or
+         * [UNPACKED] if a component is out of range
+         */
+        @JvmStatic
+        fun pack(majorVersion: Int, minorVersion: Int, patchVersion: Int): Long {
+            if (majorVersion !in 0..MAX_COMPONENT
+                || minorVersion !in 0..MAX_COMPONENT
+                || patchVersion !in 0..MAX_COMPONENT) {
+                return UNPACKED
+            }
+            return (majorVersion.toLong() shl (2 * COMPONENT_BITS)) or
+                    (minorVersion.toLong() shl COMPONENT_BITS) or
+                    patchVersion.toLong()
+        }
+
+        /**
+         * Semantic version ordering, by packed version when both can be packed.
+         */
+        @JvmStatic
+        fun compareVersions(a: PolicyDataObject, b: PolicyDataObject): Int {
+            if (a.packedVersion != UNPACKED && b.packedVersion != UNPACKED) {
+                return a.packedVersion.compareTo(b.packedVersion)
+            }
+            return compareValuesBy(a, b, { it.majorVersion }, { it.minorVersion }, { it.patchVersion })
+        }
     }
 
     override fun getName(): String = policyFullName
@@ -31,4 +76,4 @@ data class PolicyDataObject(
 
     override fun getPatchVersion(): Int = policyPatchVersion
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,27 @@
+package com.capitalone.identity.platform.versioning;
+
+import com.capitalone.identity.identitybuilder.model.LogicalVersion;
+
+/**
+ * A consistent, immutable generation of the loaded policy versions held by {@link PolicyVersionService}.
+ * Every update published by the service produces a new catalog with a higher {@link #getGeneration()}.
+ */
+public interface PolicyVersionCatalog {
+
+    /**
+     * @param policyFullName policy address
+     * @param version        a major ("1"), minor ("1.0") or patch ("1.0.2") version selector
+     * @return the loaded version the selector resolves to in this catalog, or null if it does not resolve
+     */
+    LogicalVersion getPolicyVersion(String policyFullName, String version);
+
+    /**
+     * @return true if the exact patch version is loaded in this catalog. Not counted as a resolution.
+     */
+    boolean contains(LogicalVersion policy);
+
+    /**
+     * @return generation number of this catalog, starting at 0 for the empty catalog
+     */
+    long getGeneration();
+}
@@ -0,0 +1,18 @@
+package com.capitalone.identity.platform.versioning
+
+import com.capitalone.identity.identitybuilder.model.EntityActivationStatus
+import com.capitalone.identity.identitybuilder.model.LogicalVersion
+
+/**
+ * A single change submitted to [PolicyVersionService.applyBatch].
+ */
+sealed class PolicyVersionChange(open val version: LogicalVersion) {
+
+    data class Set(
+        override val version: LogicalVersion,
+        val activationStatus: EntityActivationStatus?,
+    ) : PolicyVersionChange(version)
+
+    data class Remove(override val version: LogicalVersion) : PolicyVersionChange(version)
+
+}
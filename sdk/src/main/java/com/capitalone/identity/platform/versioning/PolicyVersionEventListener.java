@@ -1,26 +1,77 @@
 package com.capitalone.identity.platform.versioning;
 
 import com.capitalone.identity.identitybuilder.model.Entity;
+import com.capitalone.identity.platform.loading.EntityLoadBatchListener;
 import com.capitalone.identity.platform.loading.EntityLoadEvents_ApplicationEventPublisher;
 import com.capitalone.identity.platform.loading.Loaded;
 import com.capitalone.identity.platform.loading.Unloaded;
 
-public class PolicyVersionEventListener implements EntityLoadEvents_ApplicationEventPublisher {
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a {@link PolicyVersionService} in line with the loaded entities. Events published outside a batch are applied
+ * one by one; the events of a batch are collected and published as a single generation through
+ * {@link PolicyVersionService#applyBatch} when the batch ends.
+ */
+public class PolicyVersionEventListener implements EntityLoadEvents_ApplicationEventPublisher,
+        EntityLoadBatchListener {
 
     private final PolicyVersionService policyVersionService;
 
+    private int batchDepth;
+
+    private List<PolicyVersionChange> batchChanges = new ArrayList<>();
+
     public PolicyVersionEventListener(PolicyVersionService policyVersionService) {
         this.policyVersionService = policyVersionService;
     }
 
+    @Override
+    public synchronized void beginBatch() {
+        batchDepth++;
+    }
+
+    @Override
+    public void endBatch() {
+        List<PolicyVersionChange> changes;
+        synchronized (this) {
+            if (batchDepth == 0 || --batchDepth > 0) {
+                return;
+            }
+            changes = batchChanges;
+            batchChanges = new ArrayList<>();
+        }
+        if (!changes.isEmpty()) {
+            policyVersionService.applyBatch(changes);
+        }
+    }
+
     @Override
     public void publishEvent(Loaded event) {
         Entity entity = event.getEntity();
-        policyVersionService.set(entity.getInfo(), ((Entity.Policy) entity).getEntityActivationStatus());
+        PolicyVersionChange change = new PolicyVersionChange.Set(
+                entity.getInfo(), ((Entity.Policy) entity).getEntityActivationStatus());
+        if (!addToBatch(change)) {
+            policyVersionService.set(entity.getInfo(), ((Entity.Policy) entity).getEntityActivationStatus());
+        }
     }
 
     @Override
     public void publishEvent(Unloaded event) {
-        policyVersionService.remove(event.getInfo());
+        if (!addToBatch(new PolicyVersionChange.Remove(event.getInfo()))) {
+            policyVersionService.remove(event.getInfo());
+        }
+    }
+
+    /**
+     * @return false if no batch is open
+     */
+    private synchronized boolean addToBatch(PolicyVersionChange change) {
+        if (batchDepth == 0) {
+            return false;
+        }
+        batchChanges.add(change);
+        return true;
     }
 }
@@ -0,0 +1,130 @@
+package com.capitalone.identity.platform.versioning;
+
+import com.capitalone.identity.identitybuilder.model.EntityActivationStatus;
+import com.capitalone.identity.identitybuilder.model.LogicalVersion;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Immutable snapshot of every loaded policy version, partitioned by policy name into {@link PolicyVersionTree}s.
+ * <p>
+ * Instances are never modified once constructed. Writers derive the next generation with {@link #with},
+ * {@link #without} or {@link #apply}, which copy only the shards of the partition map that hold a changed policy and
+ * the path to each changed version in the affected trees; everything else is shared between snapshots. Sharding keeps
+ * a single-policy update proportional to {@code policies / SHARD_COUNT} rather than to the size of the catalog.
+ * Readers can therefore use any snapshot without locking. The only shared mutable state is the {@link Statistics}
+ * carried from one generation to the next.
+ */
+final class PolicyVersionIndex implements PolicyVersionCatalog {
+
+    /**
+     * Resolution counters shared by every generation of an index.
+     */
+    static final class Statistics {
+        final LongAdder resolvedCount = new LongAdder();
+        final LongAdder unresolvedCount = new LongAdder();
+    }
+
+    private static final int SHARD_COUNT = 64;
+
+    private final Map<String, PolicyVersionTree>[] shards;
+
+    private final long generation;
+
+    private final Statistics statistics;
+
+    private PolicyVersionIndex(Map<String, PolicyVersionTree>[] shards, long generation, Statistics statistics) {
+        this.shards = shards;
+        this.generation = generation;
+        this.statistics = statistics;
+    }
+
+    @SuppressWarnings("unchecked")
+    static PolicyVersionIndex empty(Statistics statistics) {
+        Map<String, PolicyVersionTree>[] shards = new Map[SHARD_COUNT];
+        Arrays.fill(shards, Collections.emptyMap());
+        return new PolicyVersionIndex(shards, 0, statistics);
+    }
+
+    private static int shardOf(String policyFullName) {
+        int hash = policyFullName.hashCode();
+        return (hash ^ (hash >>> 16)) & (SHARD_COUNT - 1);
+    }
+
+    @Override
+    public LogicalVersion getPolicyVersion(String policyFullName, String version) {
+        PolicyVersionTree versions = shards[shardOf(policyFullName)].get(policyFullName);
+        LogicalVersion policy = versions == null ? null : versions.getPolicyVersion(version);
+        if (policy == null) {
+            statistics.unresolvedCount.increment();
+        } else {
+            statistics.resolvedCount.increment();
+        }
+        return policy;
+    }
+
+    @Override
+    public boolean contains(LogicalVersion policy) {
+        PolicyVersionTree versions = shards[shardOf(policy.getName())].get(policy.getName());
+        return versions != null && versions.contains(policy);
+    }
+
+    @Override
+    public long getGeneration() {
+        return generation;
+    }
+
+    Statistics getStatistics() {
+        return statistics;
+    }
+
+    PolicyVersionIndex with(PolicyDataObject policy, EntityActivationStatus status) {
+        return apply(Collections.singletonList(new PolicyVersionChange.Set(policy, status)));
+    }
+
+    PolicyVersionIndex without(PolicyDataObject policy) {
+        return apply(Collections.singletonList(new PolicyVersionChange.Remove(policy)));
+    }
+
+    /**
+     * @return the next generation with all changes applied in order, or this index if none of them had an effect
+     */
+    PolicyVersionIndex apply(Collection<? extends PolicyVersionChange> changes) {
+        Map<String, PolicyVersionTree>[] next = null;
+        boolean[] copied = null;
+        for (PolicyVersionChange change : changes) {
+            PolicyDataObject policy = PolicyDataObject.create(change.getVersion());
+            int shard = shardOf(policy.getName());
+            PolicyVersionTree versions = (next == null ? shards : next)[shard].get(policy.getName());
+            PolicyVersionTree updated;
+            if (change instanceof PolicyVersionChange.Set) {
+                updated = (versions == null ? PolicyVersionTree.EMPTY : versions)
+                        .with(policy, ((PolicyVersionChange.Set) change).getActivationStatus());
+            } else if (versions != null && versions.contains(policy)) {
+                updated = versions.without(policy);
+            } else {
+                continue;
+            }
+            if (next == null) {
+                next = shards.clone();
+                copied = new boolean[SHARD_COUNT];
+            }
+            if (!copied[shard]) {
+                next[shard] = new HashMap<>(next[shard]);
+                copied[shard] = true;
+            }
+            if (updated.isEmpty()) {
+                next[shard].remove(policy.getName());
+            } else {
+                next[shard].put(policy.getName(), updated);
+            }
+        }
+        return next == null ? this : new PolicyVersionIndex(next, generation + 1, statistics);
+    }
+
+}
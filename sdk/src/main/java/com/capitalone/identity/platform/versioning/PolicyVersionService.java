@@ -2,62 +2,119 @@ package com.capitalone.identity.platform.versioning;
 
 import com.capitalone.identity.identitybuilder.model.EntityActivationStatus;
 import com.capitalone.identity.identitybuilder.model.LogicalVersion;
-import com.capitalone.identity.identitybuilder.model.PolicyInfo;
-import org.apache.commons.collections4.MultiValuedMap;
-import org.apache.commons.collections4.multimap.HashSetValuedHashMap;
 
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
+/**
+ * Resolves requested policy versions against the set of loaded policy versions.
+ * <p>
+ * Loaded versions are held in an immutable {@link PolicyVersionCatalog} snapshot. Writers ({@link #set},
+ * {@link #remove} and {@link #applyBatch}) are serialized and publish a new generation atomically; readers
+ * ({@link #getPolicyVersion}) never lock and always observe a complete generation.
+ * <p>
+ * The snapshot is the complete set of loaded versions, so it doubles as the membership check for unknown addresses
+ * and versions: a miss is the same allocation-free probe as a hit, and every {@code Loaded}/{@code Unloaded} event
+ * replaces it, so there is no separate negative cache to invalidate. Hit and miss counts are kept to make the cost of
+ * junk traffic observable.
+ * <p>
+ * Catalog listeners are told about every new generation after it is published, outside of the writer lock.
+ */
 public class PolicyVersionService {
 
-    private final Map<PolicyDataObject, EntityActivationStatus> policyStatusMap = new HashMap<>();
+    private volatile PolicyVersionIndex index = PolicyVersionIndex.empty(new PolicyVersionIndex.Statistics());
 
-    private final MultiValuedMap<String, PolicyDataObject> policyVersionMap = new HashSetValuedHashMap<>();
+    private final List<Consumer<PolicyVersionCatalog>> catalogListeners = new CopyOnWriteArrayList<>();
 
     public LogicalVersion getPolicyVersion(String policyFullName, String version) {
-        if (version.contains(".")) {
-            return policyVersionMap.get(policyFullName + version).stream()
-                    .max(Comparator.comparingInt(PolicyDataObject::getPatchVersion))
-                    .filter(policy -> {
-                        EntityActivationStatus status = policyStatusMap.get(policy);
-                        return status == EntityActivationStatus.ACTIVE || status == EntityActivationStatus.AVAILABLE;
-                    })
-                    .orElse(null);
-        } else {
-            final int majorVersion = Integer.parseInt(version);
-            return policyVersionMap.get(policyFullName + majorVersion).stream()
-                    .collect(Collectors.groupingBy(PolicyDataObject::getMinorVersion))
-                    .values().stream()
-                    .map(patches -> patches.stream().max(Comparator.comparingInt(PolicyDataObject::getPatchVersion)))
-                    .flatMap(patch -> patch.map(Stream::of).orElseGet(Stream::empty))
-                    .filter(entry -> policyStatusMap.get(entry) == EntityActivationStatus.ACTIVE)
-                    .max(Comparator.comparingInt(PolicyDataObject::getMinorVersion))
-                    .orElse(null);
-        }
+        return index.getPolicyVersion(policyFullName, version);
     }
 
-    public void set(LogicalVersion policy, EntityActivationStatus policyActivationStatus) {
-        PolicyDataObject policyDataObject = PolicyDataObject.create(policy);
-        policyStatusMap.put(policyDataObject, policyActivationStatus);
+    /**
+     * @return the current generation of loaded versions. Resolve against the returned catalog to learn which
+     * generation served a request.
+     */
+    public PolicyVersionCatalog getCatalog() {
+        return index;
+    }
 
-        policyVersionMap.get(policy.getName() + policy.getMinorVersionString()).add(policyDataObject);
-        policyVersionMap.get(policy.getName() + policy.getMajorVersion()).add(policyDataObject);
-        policyVersionMap.get(policy.getName() + policy.getPatchVersionString()).add(policyDataObject);
+    /**
+     * @return generation number of the current catalog
+     */
+    public long getGeneration() {
+        return index.getGeneration();
+    }
+
+    /**
+     * @return number of {@link #getPolicyVersion} calls that resolved to a loaded policy version
+     */
+    public long getResolvedCount() {
+        return index.getStatistics().resolvedCount.sum();
+    }
 
+    /**
+     * @return number of {@link #getPolicyVersion} calls for an unknown address or version
+     */
+    public long getUnresolvedCount() {
+        return index.getStatistics().unresolvedCount.sum();
+    }
+
+    /**
+     * @param listener called with every catalog published from now on, on the thread that published it. Listeners
+     *                 may be called concurrently and out of generation order, and must not throw.
+     */
+    public void addCatalogListener(Consumer<PolicyVersionCatalog> listener) {
+        catalogListeners.add(Objects.requireNonNull(listener));
+    }
+
+    public void set(LogicalVersion policy, EntityActivationStatus policyActivationStatus) {
+        PolicyVersionIndex published;
+        synchronized (this) {
+            published = publish(index.with(PolicyDataObject.create(policy), policyActivationStatus));
+        }
+        notifyCatalogListeners(published);
     }
 
     public void remove(LogicalVersion policy) {
-        PolicyDataObject policyDataObject = PolicyDataObject.create(policy);
-        policyStatusMap.remove(policyDataObject);
-        policyVersionMap.get(policy.getName() + policy.getMinorVersionString()).remove(policyDataObject);
-        policyVersionMap.get(policy.getName() + policy.getMajorVersion()).remove(policyDataObject);
-        policyVersionMap.get(policy.getName() + policy.getPatchVersionString()).remove(policyDataObject);
+        PolicyVersionIndex published;
+        synchronized (this) {
+            published = publish(index.without(PolicyDataObject.create(policy)));
+        }
+        notifyCatalogListeners(published);
+    }
 
+    /**
+     * Applies all changes, in order, to a single new generation and publishes it in one step. Readers observe either
+     * none or all of the batch.
+     */
+    public void applyBatch(Collection<? extends PolicyVersionChange> changes) {
+        PolicyVersionIndex published;
+        synchronized (this) {
+            published = publish(index.apply(changes));
+        }
+        notifyCatalogListeners(published);
     }
 
-}
+    /**
+     * @return the index if it is a new generation, or null if the changes had no effect
+     */
+    private PolicyVersionIndex publish(PolicyVersionIndex next) {
+        if (next == index) {
+            return null;
+        }
+        index = next;
+        return next;
+    }
 
+    private void notifyCatalogListeners(PolicyVersionIndex published) {
+        if (published != null) {
+            for (Consumer<PolicyVersionCatalog> listener : catalogListeners) {
+                listener.accept(published);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,292 @@
+package com.capitalone.identity.platform.versioning;
+
+import com.capitalone.identity.identitybuilder.model.EntityActivationStatus;
+import com.capitalone.identity.identitybuilder.model.LogicalVersion;
+
+import java.util.Arrays;
+
+/**
+ * Immutable major &rarr; minor &rarr; patch tree of the loaded versions of a single policy.
+ * <p>
+ * Each level keeps its version numbers in a sorted {@code int[]} next to a parallel array of child nodes, so a lookup
+ * is a binary search per level with no boxing or key strings. Activation status is held inline at the patch level as a
+ * parallel {@code byte[]} of status ordinals, and the version a major or minor selector resolves to is computed when its
+ * node is built. Updates copy only the nodes on the path to the changed patch; every other node is shared with the
+ * previous tree.
+ */
+final class PolicyVersionTree {
+
+    private static final byte NO_STATUS = -1;
+
+    private static final byte ACTIVE = (byte) EntityActivationStatus.ACTIVE.ordinal();
+
+    private static final byte AVAILABLE = (byte) EntityActivationStatus.AVAILABLE.ordinal();
+
+    static final PolicyVersionTree EMPTY = new PolicyVersionTree(new int[0], new MajorNode[0]);
+
+    private final int[] majorVersions;
+
+    private final MajorNode[] majors;
+
+    private PolicyVersionTree(int[] majorVersions, MajorNode[] majors) {
+        this.majorVersions = majorVersions;
+        this.majors = majors;
+    }
+
+    boolean isEmpty() {
+        return majors.length == 0;
+    }
+
+    boolean contains(LogicalVersion policy) {
+        MinorNode minor = findMinor(policy.getMajorVersion(), policy.getMinorVersion());
+        return minor != null && Arrays.binarySearch(minor.patchVersions, policy.getPatchVersion()) >= 0;
+    }
+
+    /**
+     * @param version a major ("1"), minor ("1.0") or patch ("1.0.2") version selector
+     * @return the loaded version the selector resolves to, or null if it does not resolve
+     */
+    LogicalVersion getPolicyVersion(String version) {
+        final int length = version.length();
+        final int firstDot = version.indexOf('.');
+        if (firstDot < 0) {
+            MajorNode major = findMajor(parseVersionNumber(version, 0, length));
+            return major == null ? null : major.resolved;
+        }
+        final int secondDot = version.indexOf('.', firstDot + 1);
+        MinorNode minor = findMinor(
+                parseVersionNumber(version, 0, firstDot),
+                parseVersionNumber(version, firstDot + 1, secondDot < 0 ? length : secondDot));
+        if (minor == null) {
+            return null;
+        } else if (secondDot < 0) {
+            return minor.resolved;
+        } else {
+            return minor.getAvailablePatch(parseVersionNumber(version, secondDot + 1, length));
+        }
+    }
+
+    PolicyVersionTree with(PolicyDataObject policy, EntityActivationStatus status) {
+        int index = Arrays.binarySearch(majorVersions, policy.getMajorVersion());
+        if (index >= 0) {
+            return new PolicyVersionTree(majorVersions, replace(majors, index, majors[index].with(policy, status)));
+        } else {
+            int insertAt = -index - 1;
+            return new PolicyVersionTree(
+                    insert(majorVersions, insertAt, policy.getMajorVersion()),
+                    insert(majors, insertAt, MajorNode.EMPTY.with(policy, status)));
+        }
+    }
+
+    PolicyVersionTree without(LogicalVersion policy) {
+        int index = Arrays.binarySearch(majorVersions, policy.getMajorVersion());
+        if (index < 0) {
+            return this;
+        }
+        MajorNode major = majors[index].without(policy);
+        if (major.minors.length == 0) {
+            return new PolicyVersionTree(delete(majorVersions, index), delete(majors, index));
+        } else {
+            return new PolicyVersionTree(majorVersions, replace(majors, index, major));
+        }
+    }
+
+    private MajorNode findMajor(int majorVersion) {
+        if (majorVersion < 0) {
+            return null;
+        }
+        int index = Arrays.binarySearch(majorVersions, majorVersion);
+        return index < 0 ? null : majors[index];
+    }
+
+    private MinorNode findMinor(int majorVersion, int minorVersion) {
+        MajorNode major = findMajor(majorVersion);
+        if (major == null || minorVersion < 0) {
+            return null;
+        }
+        int index = Arrays.binarySearch(major.minorVersions, minorVersion);
+        return index < 0 ? null : major.minors[index];
+    }
+
+    /**
+     * @return the decimal value of {@code version[from, to)}, or -1 if it is not a plain non-negative integer in its
+     * canonical form. Junk selectors are a miss rather than a {@link NumberFormatException} so that scanner traffic
+     * stays cheap. Leading zeros are a miss too, as version strings never have them ("1.01" is not "1.1").
+     */
+    private static int parseVersionNumber(String version, int from, int to) {
+        if (from >= to || to - from > 9 || version.charAt(from) == '0' && to - from > 1) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = version.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static final class MajorNode {
+
+        static final MajorNode EMPTY = new MajorNode(new int[0], new MinorNode[0]);
+
+        final int[] minorVersions;
+
+        final MinorNode[] minors;
+
+        /**
+         * The highest patch of the highest minor version whose highest patch is {@link EntityActivationStatus#ACTIVE}.
+         */
+        final PolicyDataObject resolved;
+
+        MajorNode(int[] minorVersions, MinorNode[] minors) {
+            this.minorVersions = minorVersions;
+            this.minors = minors;
+            this.resolved = resolve(minors);
+        }
+
+        private static PolicyDataObject resolve(MinorNode[] minors) {
+            for (int i = minors.length - 1; i >= 0; i--) {
+                MinorNode minor = minors[i];
+                int highest = minor.patches.length - 1;
+                if (minor.statuses[highest] == ACTIVE) {
+                    return minor.patches[highest];
+                }
+            }
+            return null;
+        }
+
+        MajorNode with(PolicyDataObject policy, EntityActivationStatus status) {
+            int index = Arrays.binarySearch(minorVersions, policy.getMinorVersion());
+            if (index >= 0) {
+                return new MajorNode(minorVersions, replace(minors, index, minors[index].with(policy, status)));
+            } else {
+                int insertAt = -index - 1;
+                return new MajorNode(
+                        insert(minorVersions, insertAt, policy.getMinorVersion()),
+                        insert(minors, insertAt, MinorNode.EMPTY.with(policy, status)));
+            }
+        }
+
+        MajorNode without(LogicalVersion policy) {
+            int index = Arrays.binarySearch(minorVersions, policy.getMinorVersion());
+            if (index < 0) {
+                return this;
+            }
+            MinorNode minor = minors[index].without(policy);
+            if (minor.patches.length == 0) {
+                return new MajorNode(delete(minorVersions, index), delete(minors, index));
+            } else {
+                return new MajorNode(minorVersions, replace(minors, index, minor));
+            }
+        }
+    }
+
+    private static final class MinorNode {
+
+        static final MinorNode EMPTY = new MinorNode(new int[0], new PolicyDataObject[0], new byte[0]);
+
+        final int[] patchVersions;
+
+        final PolicyDataObject[] patches;
+
+        final byte[] statuses;
+
+        /**
+         * The highest patch, if it is {@link EntityActivationStatus#ACTIVE} or {@link EntityActivationStatus#AVAILABLE}.
+         */
+        final PolicyDataObject resolved;
+
+        MinorNode(int[] patchVersions, PolicyDataObject[] patches, byte[] statuses) {
+            this.patchVersions = patchVersions;
+            this.patches = patches;
+            this.statuses = statuses;
+            this.resolved = patches.length == 0 ? null : getAvailablePatchAt(patches.length - 1);
+        }
+
+        PolicyDataObject getAvailablePatch(int patchVersion) {
+            int index = patchVersion < 0 ? -1 : Arrays.binarySearch(patchVersions, patchVersion);
+            return index < 0 ? null : getAvailablePatchAt(index);
+        }
+
+        private PolicyDataObject getAvailablePatchAt(int index) {
+            byte status = statuses[index];
+            return status == ACTIVE || status == AVAILABLE ? patches[index] : null;
+        }
+
+        MinorNode with(PolicyDataObject policy, EntityActivationStatus activationStatus) {
+            byte status = activationStatus == null ? NO_STATUS : (byte) activationStatus.ordinal();
+            int index = Arrays.binarySearch(patchVersions, policy.getPatchVersion());
+            if (index >= 0) {
+                byte[] nextStatuses = statuses.clone();
+                nextStatuses[index] = status;
+                return new MinorNode(patchVersions, replace(patches, index, policy), nextStatuses);
+            } else {
+                int insertAt = -index - 1;
+                return new MinorNode(
+                        insert(patchVersions, insertAt, policy.getPatchVersion()),
+                        insert(patches, insertAt, policy),
+                        insert(statuses, insertAt, status));
+            }
+        }
+
+        MinorNode without(LogicalVersion policy) {
+            int index = Arrays.binarySearch(patchVersions, policy.getPatchVersion());
+            if (index < 0) {
+                return this;
+            }
+            return new MinorNode(delete(patchVersions, index), delete(patches, index), delete(statuses, index));
+        }
+    }
+
+    private static int[] insert(int[] array, int index, int value) {
+        int[] result = new int[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+
+    private static byte[] insert(byte[] array, int index, byte value) {
+        byte[] result = new byte[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+
+    private static <T> T[] insert(T[] array, int index, T value) {
+        T[] result = Arrays.copyOf(array, array.length + 1);
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        result[index] = value;
+        return result;
+    }
+
+    private static <T> T[] replace(T[] array, int index, T value) {
+        T[] result = array.clone();
+        result[index] = value;
+        return result;
+    }
+
+    private static int[] delete(int[] array, int index) {
+        int[] result = new int[array.length - 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+
+    private static byte[] delete(byte[] array, int index) {
+        byte[] result = new byte[array.length - 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+
+    private static <T> T[] delete(T[] array, int index) {
+        T[] result = Arrays.copyOf(array, array.length - 1);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+}
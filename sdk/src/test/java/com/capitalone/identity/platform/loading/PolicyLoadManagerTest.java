@@ -12,6 +12,9 @@ import com.capitalone.identity.identitybuilder.model.parsing.PolicyDefinition;
 import com.capitalone.identity.identitybuilder.repository.CommonItemStore;
 import com.capitalone.identity.identitybuilder.repository.EntityProvider;
 import com.capitalone.identity.identitybuilder.repository.ItemStore;
+import com.capitalone.identity.platform.runtime.PolicyExecutors;
+import com.capitalone.identity.platform.versioning.PolicyVersionEventListener;
+import com.capitalone.identity.platform.versioning.PolicyVersionService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
@@ -21,7 +24,14 @@ import reactor.core.publisher.Flux;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -69,13 +79,17 @@ class PolicyLoadManagerTest {
     }
 
     Entity.Policy newDecisionPolicy() {
+        return newDecisionPolicy("a/b/c");
+    }
+
+    Entity.Policy newDecisionPolicy(String name) {
         Set<ConfigStoreItem> items = Stream.of(
-                new ConfigStoreItem("a/b/c/1.0/rules/blank.dmn", TestContent.DMN_BLANK),
-                new ConfigStoreItem("a/b/c/1.0/policy-metadata.json", TestContent.POLICY_METADATA_DECISION_AVAILABLE)
+                new ConfigStoreItem(name + "/1.0/rules/blank.dmn", TestContent.DMN_BLANK),
+                new ConfigStoreItem(name + "/1.0/policy-metadata.json", TestContent.POLICY_METADATA_DECISION_AVAILABLE)
         ).collect(Collectors.toSet());
         return new Entity.Policy(
                 new EntityInfo.Policy(
-                        new PolicyDefinition("a/b/c", "1.0"),
+                        new PolicyDefinition(name, "1.0"),
                         items.stream().map(item -> item.info).collect(Collectors.toSet())),
                 items
         );
@@ -156,6 +170,70 @@ class PolicyLoadManagerTest {
         assertDoesNotThrow(manager::stop);
     }
 
+    @Test
+    void initialize_parallelLoad() {
+        Entity.Policy policyA = newDecisionPolicy("a/b/c");
+        Entity.Policy policyB = newDecisionPolicy("a/b/d");
+        InMemoryItemStore store = new InMemoryItemStore(policyA, policyB);
+        // each load waits for the other one, so the startup only completes if both run at the same time
+        CyclicBarrier bothLoading = new CyclicBarrier(2);
+        Set<EntityInfo> loaded = ConcurrentHashMap.newKeySet();
+        PolicyLoadTarget concurrentTarget = new PolicyLoadTarget() {
+            @Override
+            public void load(Entity entity) {
+                try {
+                    bothLoading.await(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                loaded.add(entity.getInfo());
+            }
+
+            @Override
+            public void unload(EntityInfo info) {
+                loaded.remove(info);
+            }
+
+            @Override
+            public Collection<EntityInfo> getLoadedEntities() {
+                return new HashSet<>(loaded);
+            }
+        };
+        ExecutorService loadExecutor = PolicyExecutors.newLoadExecutor(2);
+        try {
+            PolicyLoadManager manager = new PolicyLoadManager(concurrentTarget, eventPublisher, newTestClient(store),
+                    fixedClock, true, loadExecutor);
+            assertDoesNotThrow(manager::initialize);
+            assertEquals(new HashSet<>(Arrays.asList(policyA.getInfo(), policyB.getInfo())), loaded);
+            verify(eventPublisher, times(2)).publishEvent(any(Loaded.class));
+            assertDoesNotThrow(manager::stop);
+        } finally {
+            loadExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void initialize_publishesVersionsAsOneBatch() {
+        Entity.Policy policyA = newDecisionPolicy("a/b/c");
+        Entity.Policy policyB = newDecisionPolicy("a/b/d");
+        InMemoryItemStore store = new InMemoryItemStore(policyA, policyB);
+        PolicyVersionService versionService = new PolicyVersionService();
+        PolicyLoadManager manager = new PolicyLoadManager(loadTarget, new PolicyVersionEventListener(versionService),
+                newTestClient(store), fixedClock, true);
+
+        assertDoesNotThrow(manager::initialize);
+        assertEquals(1, versionService.getGeneration());
+        assertNotNull(versionService.getPolicyVersion("a/b/c", "1.0"));
+        assertNotNull(versionService.getPolicyVersion("a/b/d", "1.0"));
+
+        // updates form a batch of their own
+        store.addEntity(newDecisionPolicy("a/b/e"));
+        testScanRequester.triggerTestScanRequest(new ScanRequest(System.currentTimeMillis(), ScanRequest.ScanType.POLL));
+        assertEquals(2, versionService.getGeneration());
+        assertNotNull(versionService.getPolicyVersion("a/b/e", "1.0"));
+        assertDoesNotThrow(manager::stop);
+    }
+
     @Test
     void initialize_awsError() {
         ConfigStoreClientS3Configuration s3Config = new ConfigStoreClientS3Configuration(
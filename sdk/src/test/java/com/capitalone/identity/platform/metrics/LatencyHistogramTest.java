@@ -0,0 +1,69 @@
+package com.capitalone.identity.platform.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, 1, 31, 32, 33, 63, 64, 1_000, 65_535, 1_000_000, 123_456_789, 60_000_000_000L})
+    void bucketBoundsContainValue(long value) {
+        int index = LatencyHistogram.indexOf(value);
+        assertTrue(value <= LatencyHistogram.highestValueAt(index));
+        assertTrue(index == 0 || value > LatencyHistogram.highestValueAt(index - 1));
+        // within 1/16 of the recorded value
+        assertTrue(LatencyHistogram.highestValueAt(index) - value <= value / 16 + 1);
+    }
+
+    @Test
+    void bucketsAreContiguous() {
+        for (int i = 1; i < LatencyHistogram.BUCKET_COUNT; i++) {
+            assertEquals(i, LatencyHistogram.indexOf(LatencyHistogram.highestValueAt(i - 1) + 1));
+        }
+    }
+
+    @Test
+    void outOfRangeValuesAreClamped() {
+        assertEquals(0, LatencyHistogram.indexOf(-5));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.indexOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        for (long value = 1; value <= 1_000; value++) {
+            histogram.record(value * 1_000);
+        }
+        assertEquals(1_000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMaxValue());
+        assertEquals(500_000, histogram.getValueAtPercentile(50), 500_000 / 16.0);
+        assertEquals(990_000, histogram.getValueAtPercentile(99), 990_000 / 16.0);
+        assertEquals(1_000_000, histogram.getValueAtPercentile(100));
+        assertEquals(1_000, histogram.getValueAtPercentile(0), 1_000 / 16.0);
+    }
+
+    @Test
+    void concurrentRecording() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(40_000, histogram.getCount());
+        assertEquals(9_999, histogram.getMaxValue());
+    }
+}
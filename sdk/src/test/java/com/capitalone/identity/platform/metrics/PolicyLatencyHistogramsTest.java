@@ -0,0 +1,57 @@
+package com.capitalone.identity.platform.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PolicyLatencyHistogramsTest {
+
+    @Test
+    void record() {
+        PolicyLatencyHistograms histograms = new PolicyLatencyHistograms();
+        histograms.record(PolicyInvocationStage.VERSION_RESOLUTION, "a/b/c", "1.0.0", null, 100);
+        histograms.record(PolicyInvocationStage.ENGINE_EVALUATION, "a/b/c", "1.0.0", "x.dmn", 1_000);
+        histograms.record(PolicyInvocationStage.ENGINE_EVALUATION, "a/b/c", "1.0.0", "x.dmn", 2_000);
+        histograms.record(PolicyInvocationStage.VERSION_RESOLUTION, "a/b/unknown", null, null, 50);
+
+        assertEquals(2, histograms.getHistogram(
+                PolicyInvocationStage.ENGINE_EVALUATION, "a/b/c", "1.0.0", "x.dmn").getCount());
+        assertEquals(1, histograms.getHistogram(
+                PolicyInvocationStage.VERSION_RESOLUTION, "a/b/c", "1.0.0", null).getCount());
+        assertNull(histograms.getHistogram(PolicyInvocationStage.ENGINE_EVALUATION, "a/b/c", "1.0.0", null));
+        assertNull(histograms.getHistogram(PolicyInvocationStage.RESULT_CONVERSION, "a/b/c", "1.0.0", "x.dmn"));
+        assertNull(histograms.getHistogram(PolicyInvocationStage.ENGINE_EVALUATION, "a/b/c", "1.0.1", "x.dmn"));
+
+        List<PolicyLatencySnapshot> snapshots = histograms.snapshot();
+        assertEquals(3, snapshots.size());
+        assertTrue(snapshots.contains(new PolicyLatencySnapshot(PolicyInvocationStage.VERSION_RESOLUTION,
+                "a/b/unknown", null, null, 1, 50, 50, 50, 50)));
+        PolicyLatencySnapshot evaluation = snapshots.stream()
+                .filter(snapshot -> snapshot.getStage() == PolicyInvocationStage.ENGINE_EVALUATION)
+                .findFirst().orElseThrow(AssertionError::new);
+        assertEquals("x.dmn", evaluation.getDmnName());
+        assertEquals(2, evaluation.getCount());
+        assertEquals(2_000, evaluation.getMaxNanos());
+
+        histograms.remove("a/b/c");
+        assertEquals(1, histograms.snapshot().size());
+    }
+
+    @Test
+    void remove_patch() {
+        PolicyLatencyHistograms histograms = new PolicyLatencyHistograms();
+        histograms.record(PolicyInvocationStage.VERSION_RESOLUTION, "a/b/c", "1.0.0", null, 100);
+        histograms.record(PolicyInvocationStage.ENGINE_EVALUATION, "a/b/c", "1.0.0", "x.dmn", 1_000);
+        histograms.record(PolicyInvocationStage.VERSION_RESOLUTION, "a/b/c", "1.0.1", null, 100);
+
+        histograms.remove("a/b/c", "1.0.0");
+        assertNull(histograms.getHistogram(PolicyInvocationStage.ENGINE_EVALUATION, "a/b/c", "1.0.0", "x.dmn"));
+        assertEquals(1, histograms.snapshot().size());
+
+        histograms.remove("a/b/c", "1.0.1");
+        assertTrue(histograms.snapshot().isEmpty());
+        histograms.remove("a/b/c", "1.0.1");
+    }
+}
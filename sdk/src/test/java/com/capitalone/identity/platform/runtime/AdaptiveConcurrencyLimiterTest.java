@@ -0,0 +1,93 @@
+package com.capitalone.identity.platform.runtime;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long THRESHOLD_NANOS = Duration.ofMillis(100).toNanos();
+
+    private static AdaptiveConcurrencyLimiter newLimiter(int initialLimit) {
+        return new AdaptiveConcurrencyLimiter(initialLimit, 2, 10, Duration.ofNanos(THRESHOLD_NANOS), 0.5);
+    }
+
+    @Test
+    void tryAcquire_shedsAtLimit() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(2);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1, limiter.getShedCount());
+    }
+
+    @Test
+    void tryAcquire_permitsAdmitsUpToLimit() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(3);
+        assertTrue(limiter.tryAcquire());
+        assertEquals(2, limiter.tryAcquire(5));
+        assertEquals(3, limiter.getInFlight());
+        assertEquals(3, limiter.getShedCount());
+        assertEquals(0, limiter.tryAcquire(2));
+        assertEquals(3, limiter.getInFlight());
+        assertEquals(5, limiter.getShedCount());
+        assertEquals(0, limiter.tryAcquire(0));
+        assertEquals(5, limiter.getShedCount());
+    }
+
+    @Test
+    void release_fastSamplesIncreaseLimit() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(4);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(System.nanoTime(), 0, false);
+        }
+        // grows only while at least half utilized, and never above the maximum
+        assertEquals(4, limiter.getLimit());
+        for (int i = 0; i < 20; i++) {
+            int limit = limiter.getLimit();
+            for (int j = 0; j < limit; j++) {
+                assertTrue(limiter.tryAcquire());
+            }
+            for (int j = 0; j < limit; j++) {
+                limiter.release(System.nanoTime(), 0, false);
+            }
+        }
+        assertEquals(10, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void release_slowSamplesDecreaseLimitOncePerWindow() {
+        AdaptiveConcurrencyLimiter limiter = newLimiter(8);
+        long admitted = System.nanoTime();
+        for (int i = 0; i < 8; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        for (int i = 0; i < 8; i++) {
+            limiter.release(admitted, THRESHOLD_NANOS + 1, false);
+        }
+        // requests admitted together back off once
+        assertEquals(4, limiter.getLimit());
+
+        assertTrue(limiter.tryAcquire());
+        limiter.release(System.nanoTime(), 0, true);
+        assertEquals(2, limiter.getLimit());
+
+        assertTrue(limiter.tryAcquire());
+        limiter.release(System.nanoTime(), 0, true);
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void constructor_invalidArguments() {
+        Duration threshold = Duration.ofMillis(1);
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(1, 0, 10, threshold, 0.5));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(11, 1, 10, threshold, 0.5));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(5, 6, 5, threshold, 0.5));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(5, 1, 10, threshold, 1));
+    }
+}
@@ -0,0 +1,171 @@
+package com.capitalone.identity.platform.runtime;
+
+import com.capitalone.identity.platform.versioning.PolicyDataObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkheadPolicyRuntimeContextTest {
+
+    private static final PolicyDataObject SLOW_POLICY = new PolicyDataObject(0, 1, 0, "a/b/slow");
+
+    private static final PolicyDataObject FAST_POLICY = new PolicyDataObject(0, 1, 0, "a/b/fast");
+
+    private ExecutorService executor;
+
+    private CountDownLatch release;
+
+    private CountDownLatch started;
+
+    @BeforeEach
+    void setup() {
+        executor = Executors.newCachedThreadPool();
+        release = new CountDownLatch(1);
+        started = new CountDownLatch(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Requests to the slow policy block until released; all other requests complete immediately.
+     */
+    private PolicyResult<String> evaluate(PolicyDataObject policy, String request) {
+        if (policy.equals(SLOW_POLICY)) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return new PolicyResult.Success<>(request);
+    }
+
+    private BulkheadPolicyRuntimeContext<String, String> newContext(PolicyBulkhead bulkhead) {
+        return new BulkheadPolicyRuntimeContext<>(
+                (policy, request) -> evaluate((PolicyDataObject) policy, request), bulkhead, executor);
+    }
+
+    @Test
+    void invokeAsync_slowPolicyIsIsolated() throws Exception {
+        PolicyBulkhead bulkhead = new PolicyBulkhead(2);
+        BulkheadPolicyRuntimeContext<String, String> context = newContext(bulkhead);
+
+        CompletableFuture<PolicyResult<String>> slow1 = context.invokeAsync(SLOW_POLICY, "s1");
+        CompletableFuture<PolicyResult<String>> slow2 = context.invokeAsync(SLOW_POLICY, "s2");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // over the limit: rejected without queueing
+        PolicyResult<String> rejected = context.invokeAsync(SLOW_POLICY, "s3").getNow(null);
+        assertNotNull(rejected);
+        assertEquals(PolicyError.POLICY_CONCURRENCY_LIMIT_EXCEEDED, rejected.getErrorInfo().getError());
+        assertEquals(1, bulkhead.getRejectedCount());
+
+        // other policies are unaffected
+        assertEquals("f1", context.invoke(FAST_POLICY, "f1").getResult());
+        assertEquals("f2", context.invokeAsync(FAST_POLICY, "f2").get(5, TimeUnit.SECONDS).getResult());
+
+        release.countDown();
+        assertEquals("s1", slow1.get(5, TimeUnit.SECONDS).getResult());
+        assertEquals("s2", slow2.get(5, TimeUnit.SECONDS).getResult());
+
+        // permits are returned on completion
+        assertEquals("s4", context.invoke(SLOW_POLICY, "s4").getResult());
+    }
+
+    @Test
+    void invoke_policyLimitOverride() throws Exception {
+        PolicyBulkhead bulkhead = new PolicyBulkhead(10, Collections.singletonMap(SLOW_POLICY.getName(), 1));
+        assertEquals(1, bulkhead.getLimit(SLOW_POLICY.getName()));
+        assertEquals(10, bulkhead.getLimit(FAST_POLICY.getName()));
+        BulkheadPolicyRuntimeContext<String, String> context = newContext(bulkhead);
+        started = new CountDownLatch(1);
+
+        Future<PolicyResult<String>> slow = executor.submit(() -> context.invoke(SLOW_POLICY, "s1"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        PolicyResult<String> rejected = context.invoke(SLOW_POLICY, "s2");
+        assertEquals(PolicyError.POLICY_CONCURRENCY_LIMIT_EXCEEDED, rejected.getErrorInfo().getError());
+        List<PolicyResult<String>> rejectedBatch = context.invokeAll(SLOW_POLICY, Arrays.asList("s3", "s4"));
+        assertEquals(2, rejectedBatch.size());
+        rejectedBatch.forEach(result -> assertEquals(PolicyResultStatus.FAILURE, result.getStatus()));
+
+        release.countDown();
+        assertEquals("s1", slow.get(5, TimeUnit.SECONDS).getResult());
+    }
+
+    @Test
+    void invoke_partitionedPools() throws Exception {
+        // "a" and "b" hash to different stripes, each with one of the policy's two permits
+        PolicyBulkhead bulkhead = new PolicyBulkhead(2, Collections.emptyMap(), 2);
+        BulkheadPolicyRuntimeContext<String, String> context = new BulkheadPolicyRuntimeContext<>(
+                (policy, request) -> evaluate((PolicyDataObject) policy, request), bulkhead, executor,
+                request -> request.substring(0, 1));
+
+        CompletableFuture<PolicyResult<String>> slowA = context.invokeAsync(SLOW_POLICY, "a1");
+        CompletableFuture<PolicyResult<String>> slowB = context.invokeAsync(SLOW_POLICY, "b1");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertEquals(PolicyResultStatus.FAILURE, context.invoke(SLOW_POLICY, "a2").getStatus());
+        assertEquals(PolicyResultStatus.FAILURE, context.invoke(SLOW_POLICY, "b2").getStatus());
+        // the two partitions hold the whole policy limit
+        assertNull(bulkhead.tryAcquire(SLOW_POLICY.getName(), null));
+
+        release.countDown();
+        assertEquals("a1", slowA.get(5, TimeUnit.SECONDS).getResult());
+        assertEquals("b1", slowB.get(5, TimeUnit.SECONDS).getResult());
+    }
+
+    @Test
+    void tryAcquire_partitionsShareBoundedPools() {
+        PolicyBulkhead bulkhead = new PolicyBulkhead(4, Collections.emptyMap(), 2);
+        // request-supplied partitions map onto the policy's two partition pools, each with half of its limit
+        List<PolicyBulkhead.Permit> acquired = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            PolicyBulkhead.Permit permit = bulkhead.tryAcquire("a/b/c", "partition-" + i);
+            if (permit != null) {
+                acquired.add(permit);
+            }
+        }
+        assertEquals(4, acquired.size());
+        assertEquals(996, bulkhead.getRejectedCount());
+        // calls without a partition count against the same policy limit
+        assertNull(bulkhead.tryAcquire("a/b/c", null));
+
+        acquired.remove(0).release();
+        assertNotNull(bulkhead.tryAcquire("a/b/c", null));
+    }
+
+    @Test
+    void tryAcquire_partitionsNeverExceedPolicyLimit() {
+        PolicyBulkhead bulkhead = new PolicyBulkhead(3, Collections.emptyMap(), 16);
+        int acquired = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (bulkhead.tryAcquire("a/b/c", "partition-" + i) != null) {
+                acquired++;
+            }
+        }
+        assertEquals(3, acquired);
+        assertNull(bulkhead.tryAcquire("a/b/c", null));
+    }
+
+    @Test
+    void constructor_invalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new PolicyBulkhead(0));
+        assertThrows(IllegalArgumentException.class, () -> new PolicyBulkhead(1, Collections.emptyMap(), 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PolicyBulkhead(1, Collections.singletonMap("a/b/c", 0)));
+    }
+}
@@ -0,0 +1,358 @@
+package com.capitalone.identity.platform.runtime;
+
+import com.capitalone.identity.identitybuilder.model.EntityActivationStatus;
+import com.capitalone.identity.identitybuilder.model.LogicalVersion;
+import com.capitalone.identity.platform.metrics.PolicyInvocationStage;
+import com.capitalone.identity.platform.metrics.PolicyLatencyHistograms;
+import com.capitalone.identity.platform.metrics.PolicyLatencyRecorder;
+import com.capitalone.identity.platform.versioning.PolicyDataObject;
+import com.capitalone.identity.platform.versioning.PolicyVersionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PolicyInvokerTest {
+
+    private static final PolicyDataObject POLICY = new PolicyDataObject(0, 1, 0, "a/b/c");
+
+    private final PolicyResultHandler<String, String> handler = new PolicyResultHandler<String, String>() {
+        @Override
+        public String createResponseForMissingPolicy(String requestAddress, String requestVersion) {
+            return "missing:" + requestAddress + "/" + requestVersion;
+        }
+
+        @Override
+        public String createSuccessResponse(PolicyRequestInfo requestInfo, String policyInvocationResult) {
+            return "success:" + policyInvocationResult;
+        }
+
+        @Override
+        public String createErrorResponse(PolicyRequestInfo requestInfo, PolicyErrorInfo errorInfo) {
+            return "error:" + errorInfo.getId();
+        }
+    };
+
+    private PolicyVersionService versionService;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setup() {
+        versionService = new PolicyVersionService();
+        versionService.set(POLICY, EntityActivationStatus.ACTIVE);
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static PolicyResult<String> echo(String request) {
+        if (request.startsWith("fail")) {
+            return new PolicyResult.Failure<>(new PolicyErrorInfo(PolicyError.POLICY_EXECUTION_ERROR, request));
+        }
+        return new PolicyResult.Success<>(request);
+    }
+
+    @Test
+    void invoke() {
+        PolicyInvoker<String, String> invoker = new PolicyInvoker<>((policy, request) -> echo(request), versionService);
+        assertEquals("success:x", invoker.invoke("a/b/c", "1", "x", handler));
+        assertEquals("error:787200", invoker.invoke("a/b/c", "1", "fail", handler));
+        assertEquals("missing:a/b/c/2", invoker.invoke("a/b/c", "2", "x", handler));
+    }
+
+    @Test
+    void invokeAsync_runsOnExecutor() throws Exception {
+        Thread caller = Thread.currentThread();
+        PolicyInvoker<String, String> invoker = new PolicyInvoker<>((policy, request) -> {
+            assertNotSame(caller, Thread.currentThread());
+            return echo(request);
+        }, versionService, new PolicyInvoker.Options().invocationExecutor(executor));
+
+        assertEquals("success:x", invoker.invokeAsync("a/b/c", "1", "x", handler).get(5, TimeUnit.SECONDS));
+        assertEquals("error:787200", invoker.invokeAsync("a/b/c", "1", "fail", handler).get(5, TimeUnit.SECONDS));
+
+        CompletableFuture<String> missing = invoker.invokeAsync("a/b/c", "2", "x", handler);
+        assertTrue(missing.isDone());
+        assertEquals("missing:a/b/c/2", missing.get());
+    }
+
+    @Test
+    void invokeAsync_doesNotBlockCaller() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PolicyInvoker<String, String> invoker = new PolicyInvoker<>((policy, request) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return echo(request);
+        }, versionService, new PolicyInvoker.Options().invocationExecutor(executor));
+
+        CompletableFuture<String> result = invoker.invokeAsync("a/b/c", "1", "x", handler);
+        assertFalse(result.isDone());
+        release.countDown();
+        assertEquals("success:x", result.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void invokeAsync_nativeAsyncContext() throws Exception {
+        class NativeAsyncContext implements
+                PolicyRuntimeContext<String, String>, AsyncPolicyRuntimeContext<String, String> {
+            @Override
+            public PolicyResult<String> invoke(LogicalVersion policyVersion, String request) {
+                throw new AssertionError("async path expected");
+            }
+
+            @Override
+            public CompletableFuture<PolicyResult<String>> invokeAsync(LogicalVersion policyVersion,
+                                                                       String request) {
+                return CompletableFuture.completedFuture(echo(request));
+            }
+        }
+        PolicyInvoker<String, String> invoker = new PolicyInvoker<>(new NativeAsyncContext(), versionService);
+        assertEquals("success:x", invoker.invokeAsync("a/b/c", "1", "x", handler).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void invokeAll() {
+        List<Integer> batchSizes = new ArrayList<>();
+        PolicyInvoker<String, String> invoker = new PolicyInvoker<>(new PolicyRuntimeContext<String, String>() {
+            @Override
+            public PolicyResult<String> invoke(LogicalVersion policyVersion, String request) {
+                throw new AssertionError("batch path expected");
+            }
+
+            @Override
+            public List<PolicyResult<String>> invokeAll(LogicalVersion policyVersion, List<String> requests) {
+                batchSizes.add(requests.size());
+                List<PolicyResult<String>> results = new ArrayList<>();
+                requests.forEach(request -> results.add(echo(request)));
+                return results;
+            }
+        }, versionService);
+
+        assertEquals(Arrays.asList("success:x", "error:787200", "success:y"),
+                invoker.invokeAll("a/b/c", "1", Arrays.asList("x", "fail", "y"), handler));
+        assertEquals(Collections.singletonList(3), batchSizes);
+        assertEquals(Arrays.asList("missing:a/b/c/2", "missing:a/b/c/2"),
+                invoker.invokeAll("a/b/c", "2", Arrays.asList("x", "y"), handler));
+        assertEquals(Collections.emptyList(), invoker.invokeAll("a/b/c", "1", Collections.emptyList(), handler));
+    }
+
+    @Test
+    void invokeAll_parallel() {
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        PolicyInvoker<String, String> invoker = new PolicyInvoker<>((policy, request) -> {
+            threads.add(Thread.currentThread());
+            return echo(request);
+        }, versionService, new PolicyInvoker.Options().invocationExecutor(executor));
+
+        List<String> requests = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 101; i++) {
+            requests.add("r" + i);
+            expected.add("success:r" + i);
+        }
+        assertEquals(expected, invoker.invokeAll("a/b/c", "1", requests, handler, 4));
+        assertFalse(threads.contains(Thread.currentThread()));
+        assertThrows(IllegalArgumentException.class, () -> invoker.invokeAll("a/b/c", "1", requests, handler, 0));
+    }
+
+    @Test
+    void invokeAll_parallelPropagatesException() {
+        PolicyInvoker<String, String> invoker = new PolicyInvoker<>((policy, request) -> {
+            throw new IllegalStateException(request);
+        }, versionService, new PolicyInvoker.Options().invocationExecutor(executor));
+        assertThrows(IllegalStateException.class,
+                () -> invoker.invokeAll("a/b/c", "1", Arrays.asList("x", "y"), handler, 2));
+    }
+
+    @Test
+    void invoke_deadline() {
+        PolicyInvoker<String, String> invoker = new PolicyInvoker<>((policy, request) -> echo(request), versionService,
+                new PolicyInvoker.Options().invocationExecutor(executor));
+        Instant deadline = Instant.now().plusSeconds(5);
+        assertEquals("success:x", invoker.invoke("a/b/c", "1", "x", handler, deadline));
+        assertEquals("error:787200", invoker.invoke("a/b/c", "1", "fail", handler, deadline));
+        assertEquals("missing:a/b/c/2", invoker.invoke("a/b/c", "2", "x", handler, deadline));
+    }
+
+    @Test
+    void invoke_pastDeadlineIsNotEvaluated() {
+        PolicyInvoker<String, String> invoker = new PolicyInvoker<>((policy, request) -> {
+            throw new AssertionError("evaluation not expected");
+        }, versionService, new PolicyInvoker.Options().invocationExecutor(executor));
+        assertEquals("error:787408", invoker.invoke("a/b/c", "1", "x", handler, Instant.now().minusMillis(1)));
+    }
+
+    @Test
+    void invokeAsync_deadlineCancelsEvaluation() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        PolicyInvoker<String, String> invoker = new PolicyInvoker<>((policy, request) -> {
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return echo(request);
+        }, versionService, new PolicyInvoker.Options().invocationExecutor(executor));
+
+        PolicyResultHandler<String, String> timeoutHandler = new PolicyResultHandler<String, String>() {
+            @Override
+            public String createResponseForMissingPolicy(String requestAddress, String requestVersion) {
+                return handler.createResponseForMissingPolicy(requestAddress, requestVersion);
+            }
+
+            @Override
+            public String createSuccessResponse(PolicyRequestInfo requestInfo, String policyInvocationResult) {
+                return handler.createSuccessResponse(requestInfo, policyInvocationResult);
+            }
+
+            @Override
+            public String createErrorResponse(PolicyRequestInfo requestInfo, PolicyErrorInfo errorInfo) {
+                return handler.createErrorResponse(requestInfo, errorInfo);
+            }
+
+            @Override
+            public String createTimeoutResponse(PolicyRequestInfo requestInfo) {
+                return "timeout:" + requestInfo.getPolicy().getPatchVersionString();
+            }
+        };
+
+        CompletableFuture<String> result = invoker.invokeAsync("a/b/c", "1", "x", timeoutHandler,
+                Instant.now().plus(Duration.ofMillis(100)));
+        assertEquals("timeout:1.0.0", result.get(5, TimeUnit.SECONDS));
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void invoke_recordsVersionResolution() {
+        PolicyLatencyHistograms histograms = new PolicyLatencyHistograms();
+        PolicyInvoker<String, String> invoker = new PolicyInvoker<>((policy, request) -> echo(request), versionService,
+                new PolicyInvoker.Options().invocationExecutor(executor).latencyRecorder(histograms));
+        invoker.invoke("a/b/c", "1", "x", handler);
+        invoker.invoke("a/b/c", "1.0", "x", handler);
+        invoker.invoke("a/b/c", "2", "x", handler);
+        invoker.invoke("x/y/z", "1", "x", handler);
+
+        assertEquals(2, histograms.getHistogram(
+                PolicyInvocationStage.VERSION_RESOLUTION, "a/b/c", "1.0.0", null).getCount());
+        assertEquals(2, histograms.getHistogram(
+                PolicyInvocationStage.VERSION_RESOLUTION, PolicyLatencyRecorder.UNRESOLVED, null, null).getCount());
+        assertNull(histograms.getHistogram(PolicyInvocationStage.VERSION_RESOLUTION, "a/b/c", null, null));
+        assertNull(histograms.getHistogram(PolicyInvocationStage.VERSION_RESOLUTION, "x/y/z", null, null));
+    }
+
+    @Test
+    void invoke_shedsOverConcurrencyLimit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, Duration.ofSeconds(1), 0.5);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PolicyInvoker<String, String> invoker = new PolicyInvoker<>((policy, request) -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return echo(request);
+        }, versionService, new PolicyInvoker.Options().invocationExecutor(executor).concurrencyLimiter(limiter));
+
+        CompletableFuture<String> admitted = invoker.invokeAsync("a/b/c", "1", "x", handler);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(1, limiter.getInFlight());
+
+        assertEquals("error:787503", invoker.invoke("a/b/c", "1", "y", handler));
+        assertEquals("error:787503", invoker.invokeAsync("a/b/c", "1", "y", handler).getNow(null));
+        assertEquals(Arrays.asList("error:787503", "error:787503"),
+                invoker.invokeAll("a/b/c", "1", Arrays.asList("y", "z"), handler));
+        assertEquals(4, limiter.getShedCount());
+
+        release.countDown();
+        assertEquals("success:x", admitted.get(5, TimeUnit.SECONDS));
+        // the permit is released by a completion stage of the evaluation, which may run after the response stage
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (limiter.getInFlight() > 0 && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+        assertEquals(0, limiter.getInFlight());
+        assertEquals("success:y", invoker.invoke("a/b/c", "1", "y", handler));
+    }
+
+    @Test
+    void invokeAll_takesOnePermitPerRequest() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 2, Duration.ofMinutes(1), 0.5);
+        PolicyInvoker<String, String> invoker = new PolicyInvoker<>(new PolicyRuntimeContext<String, String>() {
+            @Override
+            public PolicyResult<String> invoke(LogicalVersion policyVersion, String request) {
+                return echo(request);
+            }
+
+            @Override
+            public List<PolicyResult<String>> invokeAll(LogicalVersion policyVersion, List<String> requests) {
+                assertEquals(requests.size(), limiter.getInFlight());
+                return PolicyRuntimeContext.super.invokeAll(policyVersion, requests);
+            }
+        }, versionService, new PolicyInvoker.Options().invocationExecutor(executor).concurrencyLimiter(limiter));
+
+        assertEquals(Arrays.asList("success:x", "success:y", "error:787503"),
+                invoker.invokeAll("a/b/c", "1", Arrays.asList("x", "y", "z"), handler));
+        assertEquals(1, limiter.getShedCount());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void invokeAsync_timedOutEvaluationHoldsPermitUntilItExits() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 4, Duration.ofMinutes(1), 0.5);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PolicyInvoker<String, String> invoker = new PolicyInvoker<>((policy, request) -> {
+            started.countDown();
+            // ignores the interrupt of the deadline, like an engine that does not check for it
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    release.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return echo(request);
+        }, versionService, new PolicyInvoker.Options().invocationExecutor(executor).concurrencyLimiter(limiter));
+
+        CompletableFuture<String> result = invoker.invokeAsync("a/b/c", "1", "x", handler,
+                Instant.now().plus(Duration.ofMillis(100)));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals("error:787408", result.get(5, TimeUnit.SECONDS));
+        // the evaluation still runs after the caller timed out
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(4, limiter.getLimit());
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (limiter.getInFlight() > 0 && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+        assertEquals(0, limiter.getInFlight());
+        // reported as dropped
+        assertEquals(2, limiter.getLimit());
+    }
+}
@@ -0,0 +1,78 @@
+package com.capitalone.identity.platform.versioning;
+
+import com.capitalone.identity.identitybuilder.model.LogicalVersion;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PolicyDataObjectTest {
+
+    @ParameterizedTest
+    @CsvSource(value = {
+            "0,0,0",
+            "1,2,3",
+            "2097151,2097151,2097151",
+    })
+    void packedVersionRoundTrip(int major, int minor, int patch) {
+        PolicyDataObject policy = new PolicyDataObject(minor, major, patch, "a/b/c");
+        assertEquals(major, policy.getMajorVersion());
+        assertEquals(minor, policy.getMinorVersion());
+        assertEquals(patch, policy.getPatchVersion());
+        assertEquals("a/b/c", policy.getName());
+    }
+
+    @Test
+    void packedVersionOrdering() {
+        long v1_9_9 = PolicyDataObject.pack(1, 9, 9);
+        long v1_10_0 = PolicyDataObject.pack(1, 10, 0);
+        long v2_0_0 = PolicyDataObject.pack(2, 0, 0);
+        assertTrue(v1_9_9 < v1_10_0);
+        assertTrue(v1_10_0 < v2_0_0);
+    }
+
+    @Test
+    void packedVersionOutOfRange() {
+        PolicyDataObject negative = new PolicyDataObject(0, -1, 0, "a/b/c");
+        PolicyDataObject large = new PolicyDataObject(0, 0, 2097152, "a/b/c");
+        assertEquals(PolicyDataObject.UNPACKED, negative.getPackedVersion());
+        assertEquals(PolicyDataObject.UNPACKED, large.getPackedVersion());
+        assertEquals(-1, negative.getMajorVersion());
+        assertEquals(2097152, large.getPatchVersion());
+
+        // compared by their components instead
+        assertTrue(PolicyDataObject.compareVersions(negative, large) < 0);
+        assertTrue(PolicyDataObject.compareVersions(large, new PolicyDataObject(0, 0, 1, "a/b/c")) > 0);
+        assertTrue(PolicyDataObject.compareVersions(large, new PolicyDataObject(0, 1, 0, "a/b/c")) < 0);
+        assertNotEquals(large, new PolicyDataObject(0, 0, 2097153, "a/b/c"));
+    }
+
+    @Test
+    void equalsAndHashCode() {
+        PolicyDataObject policy = new PolicyDataObject(1, 2, 3, "a/b/c");
+        PolicyDataObject same = new PolicyDataObject(1, 2, 3, new String("a/b/c"));
+        assertEquals(policy, same);
+        assertEquals(policy.hashCode(), same.hashCode());
+        assertEquals(policy, policy.copy(1, 2, 3, "a/b/c"));
+
+        assertNotEquals(policy, new PolicyDataObject(1, 2, 4, "a/b/c"));
+        assertNotEquals(policy, new PolicyDataObject(1, 2, 3, "a/b/d"));
+        assertSame(policy, PolicyDataObject.create(policy));
+    }
+
+    @Test
+    void create_internsName() {
+        LogicalVersion info = mock(LogicalVersion.class);
+        when(info.getName()).thenReturn(new String("a/b/c"));
+        when(info.getMajorVersion()).thenReturn(2);
+        when(info.getMinorVersion()).thenReturn(1);
+        when(info.getPatchVersion()).thenReturn(3);
+
+        PolicyDataObject policy = PolicyDataObject.create(info);
+        assertEquals(new PolicyDataObject(1, 2, 3, "a/b/c"), policy);
+        assertSame("a/b/c", policy.getName());
+    }
+}
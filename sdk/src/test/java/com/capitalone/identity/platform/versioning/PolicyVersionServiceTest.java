@@ -9,6 +9,8 @@ import org.junit.jupiter.params.provider.CsvSource;
 import org.paukov.combinatorics3.Generator;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -241,4 +243,149 @@ class PolicyVersionServiceTest {
         assertNull(service.getPolicyVersion("a/b/c", "1"));
         assertNull(service.getPolicyVersion("a/b/c", "1.0"));
     }
+
+    @Test
+    void getPolicyVersion_resolvedOnUpdate() {
+        PolicyVersionService service = new PolicyVersionService();
+        service.set(getMockVersion("a/b/c/1.0.0"), EntityActivationStatus.ACTIVE);
+        service.set(getMockVersion("a/b/c/1.1.0"), EntityActivationStatus.ACTIVE);
+
+        // repeat lookups are served from the precomputed resolution table
+        assertSame(service.getPolicyVersion("a/b/c", "1"), service.getPolicyVersion("a/b/c", "1"));
+        assertSame(service.getPolicyVersion("a/b/c", "1.0"), service.getPolicyVersion("a/b/c", "1.0"));
+        assertEquals(getMockVersion("a/b/c/1.1.0"), service.getPolicyVersion("a/b/c", "01"));
+        assertEquals(getMockVersion("a/b/c/1.0.0"), service.getPolicyVersion("a/b/c", "1.0.0"));
+        assertNull(service.getPolicyVersion("a/b/c", "1.2"));
+        assertNull(service.getPolicyVersion("a/b/c", "2"));
+
+        service.set(getMockVersion("a/b/c/1.1.0"), EntityActivationStatus.DISABLED);
+        assertEquals(getMockVersion("a/b/c/1.0.0"), service.getPolicyVersion("a/b/c", "1"));
+        assertNull(service.getPolicyVersion("a/b/c", "1.1"));
+    }
+
+    @Test
+    void getPolicyVersion_unknownAddressOrVersion() {
+        PolicyVersionService service = new PolicyVersionService();
+        service.set(getMockVersion("a/b/c/1.0.0"), EntityActivationStatus.ACTIVE);
+
+        assertNull(service.getPolicyVersion("x/y/z", "1"));
+        assertNull(service.getPolicyVersion("a/b/c", "abc"));
+        assertNull(service.getPolicyVersion("a/b/c", ""));
+        assertNull(service.getPolicyVersion("a/b/c", "-1"));
+        assertNull(service.getPolicyVersion("a/b/c", "99999999999"));
+        assertNull(service.getPolicyVersion("a/b/c", "1."));
+        assertNull(service.getPolicyVersion("a/b/c", ".0"));
+        assertNull(service.getPolicyVersion("a/b/c", "1.0.0.0"));
+        assertNull(service.getPolicyVersion("a/b/c", "1.0.x"));
+        assertNotNull(service.getPolicyVersion("a/b/c", "1"));
+
+        assertEquals(1, service.getResolvedCount());
+        assertEquals(9, service.getUnresolvedCount());
+
+        // a newly loaded version is visible immediately, with no cached miss to expire
+        service.set(getMockVersion("x/y/z/1.0.0"), EntityActivationStatus.ACTIVE);
+        assertNotNull(service.getPolicyVersion("x/y/z", "1"));
+    }
+
+    @Test
+    void getPolicyVersion_nonCanonicalSelector() {
+        PolicyVersionService service = new PolicyVersionService();
+        service.set(getMockVersion("a/b/c/1.1.1"), EntityActivationStatus.ACTIVE);
+        assertNotNull(service.getPolicyVersion("a/b/c", "1.1.1"));
+
+        // version strings have no leading zeros, so these do not name the loaded version
+        assertNull(service.getPolicyVersion("a/b/c", "01"));
+        assertNull(service.getPolicyVersion("a/b/c", "1.01"));
+        assertNull(service.getPolicyVersion("a/b/c", "1.1.01"));
+        assertNull(service.getPolicyVersion("a/b/c", "1.1.00"));
+    }
+
+    @Test
+    void applyBatch() {
+        PolicyVersionService service = new PolicyVersionService();
+        assertEquals(0, service.getGeneration());
+        service.set(getMockVersion("a/b/c/1.0.0"), EntityActivationStatus.ACTIVE);
+        assertEquals(1, service.getGeneration());
+
+        PolicyVersionCatalog before = service.getCatalog();
+        service.applyBatch(Arrays.asList(
+                new PolicyVersionChange.Set(getMockVersion("a/b/c/1.1.0"), EntityActivationStatus.ACTIVE),
+                new PolicyVersionChange.Set(getMockVersion("a/b/d/2.0.0"), EntityActivationStatus.ACTIVE),
+                new PolicyVersionChange.Remove(getMockVersion("a/b/c/1.0.0")),
+                new PolicyVersionChange.Remove(getMockVersion("x/y/z/1.0.0"))
+        ));
+
+        // whole batch is published as a single generation
+        assertEquals(2, service.getGeneration());
+        assertEquals(getMockVersion("a/b/c/1.1.0"), service.getPolicyVersion("a/b/c", "1"));
+        assertEquals(getMockVersion("a/b/d/2.0.0"), service.getPolicyVersion("a/b/d", "2"));
+        assertNull(service.getPolicyVersion("a/b/c", "1.0"));
+        assertTrue(service.getCatalog().contains(getMockVersion("a/b/c/1.1.0")));
+        assertFalse(service.getCatalog().contains(getMockVersion("a/b/c/1.0.0")));
+
+        // prior generation is unaffected
+        assertEquals(1, before.getGeneration());
+        assertEquals(getMockVersion("a/b/c/1.0.0"), before.getPolicyVersion("a/b/c", "1"));
+        assertNull(before.getPolicyVersion("a/b/d", "2"));
+
+        // no-op changes do not advance the generation
+        service.applyBatch(Collections.singletonList(new PolicyVersionChange.Remove(getMockVersion("x/y/z/1.0.0"))));
+        service.remove(getMockVersion("x/y/z/1.0.0"));
+        assertEquals(2, service.getGeneration());
+    }
+
+    @Test
+    void addCatalogListener() {
+        PolicyVersionService service = new PolicyVersionService();
+        List<Long> generations = new ArrayList<>();
+        service.addCatalogListener(catalog -> generations.add(catalog.getGeneration()));
+        LogicalVersion version = getMockVersion("a/b/c/1.0.0");
+
+        service.set(version, EntityActivationStatus.ACTIVE);
+        // no effect, so nothing is published
+        service.remove(getMockVersion("a/b/c/2.0.0"));
+        service.applyBatch(Collections.singletonList(new PolicyVersionChange.Remove(version)));
+
+        assertEquals(Arrays.asList(1L, 2L), generations);
+    }
+
+    @Test
+    void getPolicyVersion_concurrentUpdates() throws Exception {
+        PolicyVersionService service = new PolicyVersionService();
+        LogicalVersion stable = getMockVersion("a/b/c/1.0.0");
+        service.set(stable, EntityActivationStatus.ACTIVE);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                readers.add(executor.submit(() -> {
+                    while (running.get()) {
+                        // the highest patch flips between 1.0.0 and 1.0.1 but is always an active 1.0 patch
+                        LogicalVersion result = service.getPolicyVersion("a/b/c", "1");
+                        assertNotNull(result);
+                        assertEquals(1, result.getMajorVersion());
+                        assertEquals(0, result.getMinorVersion());
+                    }
+                }));
+            }
+            Future<?> writer = executor.submit(() -> {
+                LogicalVersion churn = getMockVersion("a/b/c/1.0.1");
+                for (int i = 0; i < 10_000; i++) {
+                    service.set(churn, EntityActivationStatus.ACTIVE);
+                    service.remove(churn);
+                }
+            });
+            writer.get(30, TimeUnit.SECONDS);
+            running.set(false);
+            for (Future<?> reader : readers) {
+                reader.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            running.set(false);
+            executor.shutdownNow();
+        }
+        assertEquals(stable, service.getPolicyVersion("a/b/c", "1"));
+    }
 }